@@ -0,0 +1,58 @@
+package com.siemens.internship.benchmark;
+
+import com.siemens.internship.InternshipApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starts the application without the web layer against its own in-memory H2 database and seeds it with generated items.
+ * Every benchmark trial gets a fresh database, so the numbers of one data size do not depend on the previous ones.
+ */
+
+final class BenchmarkSupport {
+    private static final int SEED_BATCH = 10_000;
+
+    private BenchmarkSupport() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.show-sql=false",
+                "logging.level.root=WARN"));
+        all.addAll(List.of(properties));
+
+        // passed as command line arguments: properties() only sets defaults, which application.properties would override
+        return new SpringApplicationBuilder(InternshipApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(all.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    /**
+     * Inserts ids 1..size with plain JDBC batches, then moves the id sequence past them so new items do not collide.
+     * The rows get a modification time like the ones Hibernate writes.
+     */
+    static void seed(ConfigurableApplicationContext context, int size) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Timestamp now = Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS));
+
+        for (int from = 1; from <= size; from += SEED_BATCH) {
+            List<Object[]> rows = new ArrayList<>(SEED_BATCH);
+            for (long id = from; id < from + SEED_BATCH && id <= size; id++) {
+                rows.add(new Object[]{id, "item-" + id, "description of item " + id, "ADDED", "user" + id + "@mail.com", 0L, now});
+            }
+            jdbc.batchUpdate("INSERT INTO item (id, name, description, status, email, version, last_modified) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+
+        jdbc.execute("ALTER SEQUENCE item_seq RESTART WITH " + (size + 100));
+    }
+}
@@ -0,0 +1,77 @@
+package com.siemens.internship.benchmark;
+
+import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.PreconditionFailedException;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.service.ItemService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the CRUD hot paths of ItemService against an embedded H2 seeded with "size" items.
+ * findById goes through the item cache, findByIdUncached through the repository, to see what the cache saves.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ItemServiceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private ItemService itemService;
+    private ItemRepository itemRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start();
+        BenchmarkSupport.seed(context, size);
+        itemService = context.getBean(ItemService.class);
+        itemRepository = context.getBean(ItemRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, size + 1);
+    }
+
+    @Benchmark
+    public Item findById() throws IdNotExistentException {
+        return itemService.findById(randomId());
+    }
+
+    @Benchmark
+    public Optional<Item> findByIdUncached() {
+        return itemRepository.findById(randomId());
+    }
+
+    @Benchmark
+    public Optional<Item> createItem() {
+        return itemService.createItem(new Item(null, "new", "created by the benchmark", "ADDED", "bench@mail.com"));
+    }
+
+    @Benchmark
+    public Item updateItem() throws IdNotExistentException, PreconditionFailedException {
+        return itemService.updateItem(randomId(), new Item(null, "updated", "updated by the benchmark", "UPDATED", "bench@mail.com"), null);
+    }
+
+    @Benchmark
+    public List<Item> getAllItems() {
+        return itemService.getAllItems(ItemFilter.NONE, randomId(), 100);
+    }
+}
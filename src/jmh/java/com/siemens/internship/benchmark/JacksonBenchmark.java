@@ -0,0 +1,58 @@
+package com.siemens.internship.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.siemens.internship.model.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing a list of items, as one JSON array (list endpoint) and as NDJSON lines (streaming mode).
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class JacksonBenchmark {
+    @Param({"100", "1000", "10000"})
+    private int count;
+
+    private List<Item> items;
+    private ObjectWriter listWriter;
+    private ObjectWriter itemWriter;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Item.class));
+        itemWriter = objectMapper.writerFor(Item.class);
+
+        items = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            items.add(new Item(id, "item-" + id, "description of item " + id, "ADDED", "user" + id + "@mail.com"));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeArray() throws IOException {
+        return listWriter.writeValueAsBytes(items);
+    }
+
+    @Benchmark
+    public byte[] serializeNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Item item : items) {
+            out.write(itemWriter.writeValueAsBytes(item));
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,92 @@
+package com.siemens.internship.benchmark;
+
+import com.siemens.internship.config.AsyncConfig;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.service.ItemService;
+import com.siemens.internship.service.ProcessingJob;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duration of a whole processing run over "size" items, with the platform executor mode.
+ *
+ * On Java 21+ the two modes can be compared with -p executorMode=platform,virtual. On older runtimes the application
+ * falls back to platform threads for "virtual", so the trial fails instead of measuring the platform mode twice.
+ *
+ * processItems is the chunked engine. processItemsPerId is the previous implementation (one findById, one save and
+ * one CompletableFuture per id), kept here only as the baseline the engine is compared against.
+ * With 1M items the baseline takes minutes, so it is usually run with -p size=1000,100000.
+ * The baseline submits every id at once to the db bulkhead, so its queue is made large enough for all of them.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ProcessingBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"platform"})
+    private String executorMode;
+
+    private ConfigurableApplicationContext context;
+    private ItemService itemService;
+    private ItemRepository itemRepository;
+    private JdbcTemplate jdbc;
+    private Executor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("virtual".equals(executorMode) && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("The virtual executor mode needs Java 21, this is Java " + Runtime.version().feature());
+        }
+        context = BenchmarkSupport.start("item.executor.mode=" + executorMode,
+                "item.executor.db.queue-capacity=" + size, "item.executor.db.deadline=1h");
+        BenchmarkSupport.seed(context, size);
+        itemService = context.getBean(ItemService.class);
+        itemRepository = context.getBean(ItemRepository.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        executor = context.getBean(AsyncConfig.DB_EXECUTOR, Executor.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStatus() {
+        jdbc.update("UPDATE item SET status = 'ADDED'");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProcessingJobStatus processItems() {
+        return itemService.processItemsAsync(new ProcessingJob(UUID.randomUUID().toString())).join();
+    }
+
+    @Benchmark
+    public Void processItemsPerId() {
+        return CompletableFuture
+                .allOf(jdbc.queryForList("SELECT id FROM item", Long.class).stream()
+                        .map(id -> CompletableFuture
+                                .supplyAsync(() -> itemRepository.findById(id).orElse(null), executor)
+                                .thenAccept(item -> {
+                                    if (item == null) return;
+                                    item.setStatus("PROCESSED");
+                                    itemRepository.save(item);
+                                }))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+    }
+}
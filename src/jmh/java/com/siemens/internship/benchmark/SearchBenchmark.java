@@ -0,0 +1,52 @@
+package com.siemens.internship.benchmark;
+
+import com.siemens.internship.service.ItemSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the in-memory search index over "size" seeded items (names "item-<id>", descriptions
+ * "description of item <id>"). A selective query ("item 4711") walks one short posting list; a broad one
+ * ("description item") matches every item and relies on the early exit once the results cannot be beaten anymore.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private ItemSearchIndex searchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start();
+        BenchmarkSupport.seed(context, size);
+        searchIndex = context.getBean(ItemSearchIndex.class);
+        searchIndex.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ItemSearchIndex.Match> selectiveQuery() {
+        return searchIndex.search("item " + ThreadLocalRandom.current().nextInt(1, size + 1), 20);
+    }
+
+    @Benchmark
+    public List<ItemSearchIndex.Match> broadQuery() {
+        return searchIndex.search("description item", 20);
+    }
+}
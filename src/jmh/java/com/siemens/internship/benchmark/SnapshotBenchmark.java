@@ -0,0 +1,60 @@
+package com.siemens.internship.benchmark;
+
+import com.siemens.internship.model.SnapshotResult;
+import com.siemens.internship.service.ItemSnapshotService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to write a snapshot of "size" items and to restore it into an empty table, i.e. how long a warm start takes.
+ * Every restore runs against a freshly truncated table, the snapshot itself is written once per trial.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private ItemSnapshotService snapshotService;
+    private JdbcTemplate jdbcTemplate;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        context = BenchmarkSupport.start("item.snapshot.path=" + directory.resolve("items.snapshot"));
+        BenchmarkSupport.seed(context, size);
+        snapshotService = context.getBean(ItemSnapshotService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        snapshotService.snapshot();
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTable() {
+        jdbcTemplate.execute("TRUNCATE TABLE item");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Files.deleteIfExists(directory.resolve("items.snapshot"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public SnapshotResult restore() throws IOException {
+        return snapshotService.restore();
+    }
+}
@@ -2,8 +2,15 @@ package com.siemens.internship;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
-@SpringBootApplication
+/**
+ * R2DBC is only on the classpath in the "reactive" Maven profile, for the ReactiveItemApplication. It is excluded here,
+ * otherwise its transaction manager would sit next to the JPA one and @Transactional could not choose between them.
+ */
+
+@SpringBootApplication(excludeName = "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration")
+@ConfigurationPropertiesScan
 public class InternshipApplication {
 
 	public static void main(String[] args) {
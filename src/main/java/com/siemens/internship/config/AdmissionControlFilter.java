@@ -0,0 +1,249 @@
+package com.siemens.internship.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control of the item API. Every request to /api/items passes three checks before it reaches the ItemController:
+ * 1. Age - a request the proxy received more than max-request-age ago (X-Request-Start header) is dropped with 503,
+ *    so a backlog built up in front of the application is not worked off for clients that already timed out.
+ * 2. Rate - every client has a token bucket for reads, one for writes and one for starting processing jobs.
+ *    An empty bucket gives 429, and Retry-After says when the next token is available.
+ * 3. Concurrency - at most max-concurrent-requests admitted requests run at the same time. The others wait in a fair queue
+ *    for at most max-queue-time, and when the queue is full or the time is up they get 503 with Retry-After.
+ * The rejections are answered here, without touching the database or the thread pools, so they stay cheap under overload,
+ * and an admitted request waits at most max-queue-time before it runs with the same concurrency as in normal operation.
+ * A streamed response (GET /api/items with Accept: application/x-ndjson) gives its slot back when the streaming starts
+ * on the async thread.
+ */
+
+@Slf4j
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private static final String ITEMS_PATH = "/api/items";
+    private static final String PROCESS_PATH = "/api/items/process";
+    private static final String REQUEST_START_HEADER = "X-Request-Start";
+
+    enum RequestClass {
+        READ,
+        WRITE,
+        PROCESS
+    }
+
+    private final AdmissionProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<RequestClass, Cache<String, TokenBucket>> buckets = new EnumMap<>(RequestClass.class);
+    private final Semaphore slots;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<RequestClass, Counter> rateLimited = new EnumMap<>(RequestClass.class);
+    private final Counter shedQueueFull;
+    private final Counter shedQueueTime;
+    private final Counter shedRequestAge;
+
+    public AdmissionControlFilter(AdmissionProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.slots = new Semaphore(properties.getMaxConcurrentRequests(), true);
+
+        for (RequestClass requestClass : RequestClass.values()) {
+            buckets.put(requestClass, Caffeine.newBuilder()
+                    .maximumSize(properties.getMaxClients())
+                    .expireAfterAccess(Duration.ofMinutes(10))
+                    .build());
+            rateLimited.put(requestClass, rejections(meterRegistry, "rate_limited", requestClass.name().toLowerCase()));
+        }
+        this.shedQueueFull = rejections(meterRegistry, "queue_full", "any");
+        this.shedQueueTime = rejections(meterRegistry, "queue_time", "any");
+        this.shedRequestAge = rejections(meterRegistry, "request_age", "any");
+
+        Gauge.builder("item.admission.in_flight", slots,
+                        semaphore -> properties.getMaxConcurrentRequests() - semaphore.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("item.admission.queued", queued, AtomicInteger::get).register(meterRegistry);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason, String requestClass) {
+        return Counter.builder("item.admission.rejected")
+                .tag("reason", reason)
+                .tag("class", requestClass)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.equals(ITEMS_PATH) && !path.startsWith(ITEMS_PATH + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long age = requestAgeMillis(request);
+        if (age > properties.getMaxRequestAge().toMillis()) {
+            shedRequestAge.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Request waited " + age + " ms before it reached the server");
+            return;
+        }
+
+        RequestClass requestClass = classify(request);
+        long waitNanos = bucket(requestClass, clientOf(request)).tryTake(System.nanoTime());
+        if (waitNanos > 0) {
+            rateLimited.get(requestClass).increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, toRetrySeconds(waitNanos),
+                    "Rate limit of " + requestClass.name().toLowerCase() + " requests exceeded");
+            return;
+        }
+
+        if (!acquireSlot(0)) {
+            if (queued.incrementAndGet() > properties.getMaxQueuedRequests()) {
+                queued.decrementAndGet();
+                shedQueueFull.increment();
+                reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Server is overloaded");
+                return;
+            }
+            boolean acquired;
+            try {
+                acquired = acquireSlot(properties.getMaxQueueTime().toNanos());
+            } finally {
+                queued.decrementAndGet();
+            }
+            if (!acquired) {
+                shedQueueTime.increment();
+                reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Server is overloaded");
+                return;
+            }
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Waits at most timeoutNanos for a slot. The timed tryAcquire keeps the semaphore fair even with no wait at all:
+     * the untimed tryAcquire() would take a slot that was just released ahead of the requests already queued for it.
+     */
+    private boolean acquireSlot(long timeoutNanos) {
+        try {
+            return slots.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static RequestClass classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return RequestClass.READ;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.equals(PROCESS_PATH) ? RequestClass.PROCESS : RequestClass.WRITE;
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String client = request.getHeader(properties.getClientHeader());
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+    }
+
+    private TokenBucket bucket(RequestClass requestClass, String client) {
+        AdmissionProperties.Budget budget = switch (requestClass) {
+            case READ -> properties.getRead();
+            case WRITE -> properties.getWrite();
+            case PROCESS -> properties.getProcess();
+        };
+        return buckets.get(requestClass).get(client, key -> new TokenBucket(budget, System.nanoTime()));
+    }
+
+    /**
+     * The X-Request-Start header is set by the proxy when it receives the request, either in milliseconds ("1700000000123")
+     * or in seconds with a "t=" prefix like nginx does ("t=1700000000.123"). Without it (or with a bad value) the age is 0.
+     */
+    static long requestAgeMillis(HttpServletRequest request) {
+        String header = request.getHeader(REQUEST_START_HEADER);
+        if (header == null) {
+            return 0;
+        }
+        try {
+            String value = header.startsWith("t=") ? header.substring(2) : header;
+            long startMillis = value.contains(".")
+                    ? (long) (Double.parseDouble(value) * 1000)
+                    : Long.parseLong(value);
+            return Math.max(0, System.currentTimeMillis() - startMillis);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long toRetrySeconds(long nanos) {
+        long seconds = nanos / 1_000_000_000L + (nanos % 1_000_000_000L == 0 ? 0 : 1);
+        return Math.max(1, seconds);
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String message)
+            throws IOException {
+        log.debug("Request rejected with {}: {}", status.value(), message);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+
+    /**
+     * Token bucket of one client and request class. The tokens are refilled lazily from the time passed since the last request,
+     * so an idle client costs nothing but its entry in the cache.
+     */
+    static final class TokenBucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(AdmissionProperties.Budget budget, long now) {
+            this.capacity = budget.getCapacity();
+            this.refillPerNano = budget.getRefillPerSecond() / 1e9;
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        /**
+         * Takes one token. Returns 0 when it was available, otherwise how many nanoseconds until it will be.
+         */
+        synchronized long tryTake(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return refillPerNano > 0 ? (long) Math.ceil((1 - tokens) / refillPerNano) : Long.MAX_VALUE;
+        }
+    }
+}
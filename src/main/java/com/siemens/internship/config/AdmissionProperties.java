@@ -0,0 +1,56 @@
+package com.siemens.internship.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the admission control in front of /api/items, bound from the "item.admission" prefix.
+ * Enabled - when false, every request goes straight to the controller
+ * Client header - header naming the client of a request (set by the API gateway); without it the remote address is used
+ * Read / write / process - token bucket of every client for GET requests, for changes and for POST /api/items/process.
+ *                          Capacity is the burst a client can send at once, refill per second its sustained rate.
+ * Max clients - how many client buckets are kept in memory, the least recently seen ones are dropped first
+ * Max concurrent requests - how many admitted requests can run at the same time. It should stay under the Tomcat thread pool,
+ *                           so a spike waits here, where its wait is bounded, instead of in the connector queue.
+ * Max queued requests - how many requests can wait for a free slot; the ones after them are rejected immediately
+ * Max queue time - how long a request can wait for a free slot before it is rejected
+ * Max request age - a request older than this (according to the X-Request-Start header of the proxy) is rejected,
+ *                   its client has most likely given up on it already
+ */
+
+@Data
+@ConfigurationProperties(prefix = "item.admission")
+public class AdmissionProperties {
+    private boolean enabled = true;
+
+    private String clientHeader = "X-Client-Id";
+
+    private Budget read = new Budget(200, 100);
+
+    private Budget write = new Budget(50, 20);
+
+    private Budget process = new Budget(10, 1);
+
+    private int maxClients = 100_000;
+
+    private int maxConcurrentRequests = 64;
+
+    private int maxQueuedRequests = 200;
+
+    private Duration maxQueueTime = Duration.ofMillis(100);
+
+    private Duration maxRequestAge = Duration.ofSeconds(2);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+        private int capacity;
+
+        private double refillPerSecond;
+    }
+}
@@ -0,0 +1,26 @@
+package com.siemens.internship.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the in-memory item aggregates, bound from the "item.aggregates" prefix.
+ * Top domains - how many email domains the heavy-hitters sketch keeps as candidates and returns
+ * Sketch width, sketch depth - size of the count-min sketch behind it. The count of a domain is overestimated by at most
+ *                              about 2 * items / width, with a probability of at least 1 - 0.5^depth.
+ * Reconcile interval - how often the counts per status are compared with a GROUP BY in the database
+ */
+
+@Data
+@ConfigurationProperties(prefix = "item.aggregates")
+public class AggregateProperties {
+    private int topDomains = 10;
+
+    private int sketchWidth = 2048;
+
+    private int sketchDepth = 4;
+
+    private Duration reconcileInterval = Duration.ofMinutes(1);
+}
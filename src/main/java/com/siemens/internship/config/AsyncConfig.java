@@ -1,41 +1,80 @@
 package com.siemens.internship.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-
-import java.util.concurrent.Executor;
 
 /**
  * This class enables the asynchronous support for the applications by allowing Spring to look for @Async annotations.
- * When it meets a method annotated with this annotation, it runs it on a background thread that comes from the ThreadPoolTaskExecutor.
+ * When it meets a method annotated with this annotation, it runs it on a background thread that comes from the executor named in it.
  * Therefore, the server can handle multiple requests more efficiently because it does not have to wait for the slow operations to finish.
  */
 
+@Slf4j
 @Configuration
 @EnableAsync
 public class AsyncConfig {
+    public static final String ORCHESTRATION_EXECUTOR = "orchestrationExecutor";
+    public static final String DB_EXECUTOR = "dbExecutor";
+    public static final String CPU_EXECUTOR = "cpuExecutor";
+
     /**
-     * This method defines the thread pool and its characteristics.
-     * Core pool size - how many threads are kept alive, even if they’re idle.
-     * Max pool size - in case the queue gets filled, the max number of threads that can be allowed. (usually 2 * corePoolSize)
-     * Queue size - when all threads from the core pool are busy, requests enter the waiting queue
-     * Thread Name prefix - all treas will be called Thread-1, Thread-2 etc. Helps with debugging when looking through the logs
+     * With one executor for the @Async jobs and every chunk they submit, a large run can take all its threads while its own
+     * chunks wait in the queue behind it, and any other @Async work waits too. So the work is split over three bulkheads,
+     * each with its own threads, queue and task deadline (see BulkheadExecutor):
      *
-     * All these arguments can be adjusted based on the problem and the average number of requests made.
-     * (these are tests values that I estimated should be ok)
+     * orchestrationExecutor - the @Async processing jobs. They only read ids and wait for their chunks.
+     * dbExecutor - the blocking JDBC work of the jobs: chunk updates, loading and writing the pipeline batches.
+     * cpuExecutor - the ItemProcessingStage beans.
      *
+     * A job therefore never waits for a thread held by another job's chunks, and a slow stage cannot hold the threads
+     * the database work needs. A full bulkhead rejects the task (counted in "executor.rejected") instead of running it
+     * on the caller's thread. The pool size, active threads and queue depth of each one are published by Spring Boot as
+     * the "executor.*" metrics with its bean name.
+     *
+     * item.executor.mode chooses the threads of the db bulkhead:
+     * PLATFORM - a classic pool sized with item.executor.db.*
+     * VIRTUAL - virtual threads, so a task blocked on JDBC does not hold a platform thread. At most max-concurrency of
+     * them run at the same time (sized to the connection pool), the others wait in the queue.
+     * Virtual threads need Java 21, on older runtimes the PLATFORM mode is used and a warning is logged.
      */
-    @Bean
-    @Primary
-    public Executor itemProcessingExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(10);
-        executor.setMaxPoolSize(20);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("Thread-");
+    @Bean(name = ORCHESTRATION_EXECUTOR)
+    public BulkheadExecutor orchestrationExecutor(ExecutorProperties properties, MeterRegistry meterRegistry) {
+        BulkheadExecutor executor = new BulkheadExecutor(ORCHESTRATION_EXECUTOR, properties.getOrchestration(), meterRegistry);
+        executor.initialize();
+
+        return executor;
+    }
+
+    @Bean(name = DB_EXECUTOR)
+    public BulkheadExecutor dbExecutor(ExecutorProperties properties, MeterRegistry meterRegistry) {
+        ExecutorProperties.Bulkhead bulkhead = properties.getDb();
+        boolean virtual = properties.getMode() == ExecutorProperties.Mode.VIRTUAL;
+        if (virtual && Runtime.version().feature() < 21) {
+            log.warn("Virtual threads need Java 21, running on Java {}: falling back to the platform thread pool",
+                    Runtime.version().feature());
+            virtual = false;
+        }
+        if (virtual) {
+            bulkhead = new ExecutorProperties.Bulkhead(properties.getMaxConcurrency(), properties.getMaxConcurrency(),
+                    bulkhead.getQueueCapacity(), bulkhead.getDeadline());
+        }
+
+        BulkheadExecutor executor = new BulkheadExecutor(DB_EXECUTOR, bulkhead, meterRegistry);
+        if (virtual) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("VirtualThread-").getVirtualThreadFactory());
+        }
+        executor.initialize();
+
+        return executor;
+    }
+
+    @Bean(name = CPU_EXECUTOR)
+    public BulkheadExecutor cpuExecutor(ExecutorProperties properties, MeterRegistry meterRegistry) {
+        BulkheadExecutor executor = new BulkheadExecutor(CPU_EXECUTOR, properties.getCpu(), meterRegistry);
         executor.initialize();
 
         return executor;
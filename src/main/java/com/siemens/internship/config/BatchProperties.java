@@ -0,0 +1,16 @@
+package com.siemens.internship.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the bulk create endpoint, bound from the "item.batch" prefix.
+ * Flush size - after how many persisted items the pending inserts are sent as one JDBC batch and the persistence context is cleared.
+ *              It should be equal to hibernate.jdbc.batch_size, so every flush is exactly one batch.
+ */
+
+@Data
+@ConfigurationProperties(prefix = "item.batch")
+public class BatchProperties {
+    private int flushSize = 50;
+}
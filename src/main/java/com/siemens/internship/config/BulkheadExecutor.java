@@ -0,0 +1,234 @@
+package com.siemens.internship.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool reserved to one kind of work (a bulkhead), where every task has a deadline.
+ *
+ * A task that is still waiting in the queue when its deadline passes is removed from it and never runs; a task that is
+ * still running is interrupted. In both cases its future completes right away with a TimeoutException, so the caller
+ * does not wait any longer than the deadline, whatever the task does with the interrupt. Cancelling the future does the same.
+ *
+ * A full pool and queue reject the task with a TaskRejectedException instead of running it on the caller's thread,
+ * otherwise the caller (another bulkhead or a request thread) would end up doing the work it was protected from.
+ *
+ * Besides the "executor.*" metrics Spring Boot publishes for every ThreadPoolTaskExecutor bean, every bulkhead publishes
+ * "executor.queue.wait" (how long its tasks waited for a thread), "executor.rejected" and "executor.deadline.exceeded"
+ * (phase=queued|running), all tagged with its name.
+ */
+
+@Slf4j
+public class BulkheadExecutor extends ThreadPoolTaskExecutor {
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final Duration deadline;
+
+    private final ScheduledThreadPoolExecutor deadlines;
+    private final Timer queueWait;
+    private final Counter rejected;
+    private final Counter expiredQueued;
+    private final Counter expiredRunning;
+
+    public BulkheadExecutor(String name, ExecutorProperties.Bulkhead properties, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.deadline = properties.getDeadline();
+        setCorePoolSize(properties.getCorePoolSize());
+        setMaxPoolSize(properties.getMaxPoolSize());
+        setQueueCapacity(properties.getQueueCapacity());
+        setThreadNamePrefix(name + "-");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, name + "-deadlines-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // most tasks finish in time, their timeouts are removed right away instead of piling up until they expire
+        this.deadlines.setRemoveOnCancelPolicy(true);
+
+        this.queueWait = Timer.builder("executor.queue.wait")
+                .description("Time the tasks of the bulkhead waited in its queue for a thread")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("executor.rejected")
+                .description("Tasks rejected because the pool and the queue of the bulkhead were full")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.expiredQueued = deadlineCounter(name, "queued", meterRegistry);
+        this.expiredRunning = deadlineCounter(name, "running", meterRegistry);
+    }
+
+    private static Counter deadlineCounter(String name, String phase, MeterRegistry meterRegistry) {
+        return Counter.builder("executor.deadline.exceeded")
+                .description("Tasks cancelled because their deadline passed before they finished")
+                .tag("name", name)
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the task with the deadline of the bulkhead. The future completes with the result of the task,
+     * with its exception, or with a TimeoutException once the deadline passed.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task, Duration deadline) {
+        DeadlineTask<T> deadlineTask = new DeadlineTask<>(task, deadline);
+        try {
+            super.execute(deadlineTask);
+        } catch (TaskRejectedException ex) {
+            rejected.increment();
+            deadlineTask.timeout.cancel(false);
+            throw new TaskRejectedException("The " + name + " bulkhead is full (" + getActiveCount() + " running, "
+                    + getQueueSize() + " queued)", ex);
+        }
+
+        return deadlineTask.future;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submit(Executors.callable(task), deadline);
+    }
+
+    @Override
+    public CompletableFuture<?> submit(Runnable task) {
+        return submit(Executors.callable(task), deadline);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return submit(task, deadline);
+    }
+
+    @Override
+    public CompletableFuture<Void> submitCompletable(Runnable task) {
+        return submit(Executors.callable(task, null), deadline);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submitCompletable(Callable<T> task) {
+        return submit(task, deadline);
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        deadlines.shutdownNow();
+    }
+
+    /**
+     * The task as it is queued in the pool. The state decides who wins when the deadline passes just as
+     * a thread picks the task up: only one of them can move it out of QUEUED.
+     */
+    private final class DeadlineTask<T> implements Runnable {
+        private final Callable<T> task;
+        private final Duration deadline;
+        private final long submittedAt = System.nanoTime();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final ScheduledFuture<?> timeout;
+        private Thread runner;
+
+        private DeadlineTask(Callable<T> task, Duration deadline) {
+            this.task = task;
+            this.deadline = deadline;
+            this.timeout = deadlines.schedule(this::expire, deadline.toNanos(), TimeUnit.NANOSECONDS);
+            future.whenComplete((result, failure) -> {
+                if (failure instanceof CancellationException) {
+                    stop();
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            queueWait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                future.complete(task.call());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            } finally {
+                synchronized (this) {
+                    state.set(DONE);
+                    runner = null;
+                }
+                timeout.cancel(false);
+                // an interrupt sent just as the task finished must not reach the next task of this thread
+                Thread.interrupted();
+            }
+        }
+
+        /**
+         * A queued task is taken out of the queue before its future fails, so the caller never sees the timeout of a task
+         * that still runs afterwards. A running one is interrupted once its future failed. The metrics and the log come
+         * first, so they are already there when the caller wakes up.
+         */
+        private void expire() {
+            TimeoutException exceeded = new TimeoutException("Task of the " + name + " bulkhead did not finish within " + deadline);
+            if (dequeue()) {
+                expiredQueued.increment();
+                log.warn("Task of the {} bulkhead exceeded its deadline of {} while queued", name, deadline);
+                future.completeExceptionally(exceeded);
+            } else if (!future.isDone()) {
+                expiredRunning.increment();
+                log.warn("Task of the {} bulkhead exceeded its deadline of {} while running", name, deadline);
+                if (future.completeExceptionally(exceeded)) {
+                    interrupt();
+                }
+            }
+        }
+
+        private void stop() {
+            if (!dequeue()) {
+                interrupt();
+            }
+        }
+
+        /**
+         * Takes the task out of the queue if no thread picked it up yet.
+         */
+        private boolean dequeue() {
+            if (!state.compareAndSet(QUEUED, DONE)) {
+                return false;
+            }
+
+            getThreadPoolExecutor().remove(this);
+            timeout.cancel(false);
+            return true;
+        }
+
+        private synchronized void interrupt() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.siemens.internship.config;
+
+import com.siemens.internship.model.Item;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * This class enables the caching annotations (@Cacheable, @CachePut, @CacheEvict) used by the ItemService.
+ * The cache itself is a Caffeine cache configured from the spring.cache.* properties:
+ * maximumSize bounds the number of entries (least recently/frequently used ones are evicted first),
+ * expireAfterWrite bounds how long an entry can live and recordStats enables the hit, miss and eviction counters.
+ *
+ * The cache manager is declared here instead of by Spring Boot so its caches can be VersionedCaffeineCache:
+ * a put never replaces an item with an older version of it.
+ */
+
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+    public static final String ITEMS_CACHE = "items";
+
+    @Bean
+    public CaffeineCacheManager cacheManager(CacheProperties cacheProperties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new VersionedCaffeineCache(name, cache);
+            }
+        };
+        String specification = cacheProperties.getCaffeine().getSpec();
+        if (StringUtils.hasText(specification)) {
+            cacheManager.setCacheSpecification(specification);
+        }
+        if (!cacheProperties.getCacheNames().isEmpty()) {
+            cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Two writers can put the same item in the wrong order: an update that committed version 2 can reach the cache
+     * after the one that committed version 3. So a put keeps the cached item when it has a higher version.
+     *
+     * A read-through load racing with an update or a delete is handled by @Cacheable(sync = true) instead:
+     * the load runs inside Caffeine's compute of the key, so the put or the eviction of the writer waits for it
+     * and is applied after it.
+     */
+    public static class VersionedCaffeineCache extends CaffeineCache {
+        public VersionedCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+            super(name, cache);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            if (!(value instanceof Item item) || item.getVersion() == null) {
+                super.put(key, value);
+                return;
+            }
+            getNativeCache().asMap().compute(key, (id, cached) ->
+                    cached instanceof Item current && current.getVersion() != null && current.getVersion() > item.getVersion()
+                            ? cached
+                            : item);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.siemens.internship.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the item change feed (GET /api/items/changes), bound from the "item.changes" prefix.
+ * Retained events - how many of the latest events are kept in memory, so a client can resume from any of them
+ * Retained ids - how many item ids the retained events may hold together; a processed chunk carries up to chunk-size ids,
+ *                so the oldest events are also dropped once this is exceeded
+ * Subscriber buffer - how many events can wait to be sent to one client. A client that falls further behind is disconnected,
+ *                     and reconnects from the last event it received.
+ * Timeout - how long a connection stays open; the clients are expected to reconnect after it
+ * Max subscribers - how many clients can be connected at the same time; more are answered with 503. Every connected client
+ *                   can hold one sender thread while its connection is slow, so this also bounds those threads.
+ */
+
+@Data
+@ConfigurationProperties(prefix = "item.changes")
+public class ChangeFeedProperties {
+    private int retainedEvents = 10_000;
+
+    private int retainedIds = 100_000;
+
+    private int subscriberBuffer = 1000;
+
+    private Duration timeout = Duration.ofMinutes(30);
+
+    private int maxSubscribers = 200;
+}
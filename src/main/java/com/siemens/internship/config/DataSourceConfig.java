@@ -0,0 +1,54 @@
+package com.siemens.internship.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Splits the database traffic between two connection pools when "item.datasource.replica.jdbc-url" is set:
+ *
+ * Primary - the spring.datasource pool (sized with spring.datasource.hikari.*), used for everything that writes
+ * Replica - the item.datasource.replica pool (sized with item.datasource.replica.*), used by @Transactional(readOnly = true)
+ *
+ * The DataSource the application sees is a LazyConnectionDataSourceProxy: it only takes a real connection when the first
+ * statement runs, by which time the transaction manager has marked it read-only or not, so it can pick the pool then.
+ * Code without a transaction (the bulk updates, the JDBC batches) always gets the primary.
+ *
+ * Locally both pools point to the same in-memory H2 database, so the split and the pool sizes can be tried without
+ * a replica. With a real asynchronous replica, a read right after a write can miss it; the item cache is updated
+ * on every update, which hides most of that for GET /api/items/{id}.
+ */
+
+@Configuration
+@ConditionalOnProperty(prefix = "item.datasource.replica", name = "jdbc-url")
+public class DataSourceConfig {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("item.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        return DataSourceBuilder.create().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(replica);
+        return dataSource;
+    }
+}
@@ -0,0 +1,52 @@
+package com.siemens.internship.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the bulkhead executors, bound from the "item.executor" prefix.
+ * Orchestration - runs the @Async processing jobs, which mostly wait for their chunks, so a few threads are enough
+ * Db - runs the blocking database work of the jobs (chunk updates, loading and writing the pipeline batches)
+ * Cpu - runs the ItemProcessingStage beans, sized to the number of cores by default
+ * For each of them: core pool size, max pool size, queue capacity and the deadline of a task (queue time included).
+ * Mode - PLATFORM uses platform threads everywhere, VIRTUAL runs the db bulkhead on virtual threads (needs Java 21 or newer)
+ * Max concurrency - only used by the VIRTUAL mode: how many db tasks can run at the same time. They are
+ *                   blocking JDBC calls, so it should be equal to the size of the connection pool.
+ */
+
+@Data
+@ConfigurationProperties(prefix = "item.executor")
+public class ExecutorProperties {
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bulkhead {
+        private int corePoolSize;
+
+        private int maxPoolSize;
+
+        private int queueCapacity;
+
+        private Duration deadline;
+    }
+
+    private Mode mode = Mode.PLATFORM;
+
+    private int maxConcurrency = 10;
+
+    private Bulkhead orchestration = new Bulkhead(2, 2, 4, Duration.ofHours(1));
+
+    private Bulkhead db = new Bulkhead(10, 20, 100, Duration.ofSeconds(30));
+
+    private Bulkhead cpu = new Bulkhead(Runtime.getRuntime().availableProcessors(),
+            Runtime.getRuntime().availableProcessors(), 100, Duration.ofSeconds(10));
+}
@@ -1,6 +1,13 @@
 package com.siemens.internship.config;
 
+import com.siemens.internship.config.exception.ChangeFeedExpiredException;
 import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.JobAlreadyRunningException;
+import com.siemens.internship.config.exception.PreconditionFailedException;
+import com.siemens.internship.config.exception.TooManySubscribersException;
+import com.siemens.internship.config.exception.UnknownFieldException;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -9,6 +16,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -25,6 +33,72 @@ public class GlobalExceptionHandler {
         return errorMap;
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(JobAlreadyRunningException.class)
+    public Map<String, String> handleJobAlreadyRunningException(JobAlreadyRunningException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+        errorMap.put("error", exception.getMessage());
+        log.error("Conflict error: {}", exception.getMessage());
+        return errorMap;
+    }
+
+    @ResponseStatus(HttpStatus.GONE)
+    @ExceptionHandler(ChangeFeedExpiredException.class)
+    public Map<String, String> handleChangeFeedExpiredException(ChangeFeedExpiredException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+        errorMap.put("error", exception.getMessage());
+        log.error("Change feed error: {}", exception.getMessage());
+        return errorMap;
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(TaskRejectedException.class)
+    public Map<String, String> handleTaskRejectedException(TaskRejectedException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+        errorMap.put("error", exception.getMessage());
+        log.error("Executor full: {}", exception.getMessage());
+        return errorMap;
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(TooManySubscribersException.class)
+    public Map<String, String> handleTooManySubscribersException(TooManySubscribersException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+        errorMap.put("error", exception.getMessage());
+        log.error("Change feed full: {}", exception.getMessage());
+        return errorMap;
+    }
+
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler(PreconditionFailedException.class)
+    public Map<String, String> handlePreconditionFailedException(PreconditionFailedException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+        errorMap.put("error", exception.getMessage());
+        log.error("Precondition failed: {}", exception.getMessage());
+        return errorMap;
+    }
+
+    /**
+     * Two writers updated the same item at the same time and this one lost: it has to read the item again and retry.
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public Map<String, String> handleOptimisticLockingFailureException(OptimisticLockingFailureException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+        errorMap.put("error", "The item was modified by another request, read it again and retry");
+        log.error("Concurrent update: {}", exception.getMessage());
+        return errorMap;
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(UnknownFieldException.class)
+    public Map<String, String> handleUnknownFieldException(UnknownFieldException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+        errorMap.put("error", exception.getMessage());
+        log.error("Fieldset error: {}", exception.getMessage());
+        return errorMap;
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public Map<String, String> handleValidationExceptions(MethodArgumentNotValidException ex) {
@@ -39,4 +113,17 @@ public class GlobalExceptionHandler {
 
         return errorMap;
     }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public Map<String, String> handleParameterValidationExceptions(HandlerMethodValidationException ex) {
+        Map<String, String> errorMap = new HashMap<>();
+
+        ex.getAllValidationResults().forEach(result -> result.getResolvableErrors().forEach(error ->
+                errorMap.put(result.getMethodParameter().getParameterName(), error.getDefaultMessage())));
+
+        log.error("Request parameter validation error: {}", errorMap);
+
+        return errorMap;
+    }
 }
@@ -0,0 +1,35 @@
+package com.siemens.internship.config;
+
+import com.siemens.internship.service.ItemAggregates;
+import com.siemens.internship.service.ItemSearchIndex;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the in-memory views of the item table at startup, before the application reports itself ready:
+ * the full-text search index (names and descriptions) and the item aggregates (counts per status and top email domains).
+ *
+ * It runs after the SnapshotRestoreRunner (order 0). A restore already builds both, so only what is not built yet is scanned.
+ * The two are built one after the other, so startup never runs two full scans of the table at the same time.
+ */
+
+@Component
+@Order(1)
+@AllArgsConstructor
+public class ItemWarmUpRunner implements ApplicationRunner {
+    private ItemSearchIndex searchIndex;
+    private ItemAggregates aggregates;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!searchIndex.isBuilt()) {
+            searchIndex.rebuild();
+        }
+        if (!aggregates.isBuilt()) {
+            aggregates.rebuild();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.siemens.internship.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tuning knobs for the item processing engine, bound from the "item.processing" prefix in application.properties.
+ * Chunk size - how many ids are read per keyset page and updated by one bulk statement
+ * Parallelism - how many chunks can be updated at the same time when a run starts
+ * Min / max concurrency - bounds of the adaptive in-flight window. Max should stay under the connection pool size,
+ *                         so the CRUD endpoints always find a free connection while a job runs.
+ * Latency target - a chunk update slower than this means the database is saturated and the window shrinks
+ * Backoff ratio - how much the window shrinks in that case (0.7 means by 30%)
+ * Retained jobs - how many finished jobs are kept in memory so their summary can still be read
+ * Watermark overlap - how far before its start time a successful run sets the watermark. A transaction that stamped an item
+ *                     just before the run started but committed after the run read that part of the index is then still
+ *                     picked up by the next incremental run (at the cost of processing a few items twice).
+ * Partitioned - when several instances share the database, they split every run into id ranges claimed through leases
+ *               in the processing_partition table, instead of each one processing the whole table
+ * Partitions - in how many id ranges a partitioned run is split (the most instances that can work on one run)
+ * Lease duration - how long an instance keeps a range without renewing it; after that, another instance can take it over.
+ *                  It has to be much longer than one chunk update and than the clock difference between the instances.
+ * Partition poll interval - how often an instance with nothing left to claim checks whether a lease of another one expired
+ * Node id - name of this instance in the lease table, random by default
+ * Load parallelism - threads loading the items of the chunks when ItemProcessingStage beans exist (the writes use max concurrency)
+ * Stage queue capacity - how many micro-batches can wait in front of every pipeline step
+ * Stage parallelism - threads of a stage by its name, overriding what the stage asks for (e.g. stage-parallelism.Enrichment=4)
+ */
+
+@Data
+@ConfigurationProperties(prefix = "item.processing")
+public class ProcessingProperties {
+    private int chunkSize = 500;
+
+    private int parallelism = 4;
+
+    private int minConcurrency = 1;
+
+    private int maxConcurrency = 6;
+
+    private Duration latencyTarget = Duration.ofMillis(250);
+
+    private double backoffRatio = 0.7;
+
+    private int retainedJobs = 100;
+
+    private Duration watermarkOverlap = Duration.ofSeconds(5);
+
+    private boolean partitioned = false;
+
+    private int partitions = 16;
+
+    private Duration leaseDuration = Duration.ofSeconds(30);
+
+    private Duration partitionPollInterval = Duration.ofSeconds(1);
+
+    private String nodeId = UUID.randomUUID().toString();
+
+    private int loadParallelism = 2;
+
+    private int stageQueueCapacity = 2;
+
+    private Map<String, Integer> stageParallelism = new HashMap<>();
+}
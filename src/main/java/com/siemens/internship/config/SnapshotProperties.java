@@ -0,0 +1,23 @@
+package com.siemens.internship.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the item snapshots, bound from the "item.snapshot" prefix.
+ * Path - file the snapshot is written to and restored from
+ * Restore on boot - load the snapshot when the application starts, if the file exists and the item table is empty
+ * Batch size - how many rows are sent in one JDBC batch while restoring
+ */
+
+@Data
+@ConfigurationProperties(prefix = "item.snapshot")
+public class SnapshotProperties {
+    private Path path = Path.of("data", "items.snapshot");
+
+    private boolean restoreOnBoot = false;
+
+    private int batchSize = 1000;
+}
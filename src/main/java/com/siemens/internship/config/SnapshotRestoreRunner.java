@@ -0,0 +1,51 @@
+package com.siemens.internship.config;
+
+import com.siemens.internship.service.ItemSnapshotService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Restores the item snapshot when the application starts, if "item.snapshot.restore-on-boot" is set.
+ * Runners are called before the application reports itself ready to accept traffic, so the load balancer
+ * only sends requests once the items are back.
+ *
+ * The restore is skipped when there is no snapshot file or the table already has items (e.g. a file-based database).
+ * A snapshot that cannot be read is logged and the application starts with what the database has.
+ */
+
+@Slf4j
+@Component
+@Order(0)
+@AllArgsConstructor
+public class SnapshotRestoreRunner implements ApplicationRunner {
+    private SnapshotProperties properties;
+    private ItemSnapshotService snapshotService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isRestoreOnBoot()) {
+            return;
+        }
+        if (!Files.exists(properties.getPath())) {
+            log.info("No item snapshot at {}, starting empty", properties.getPath().toAbsolutePath());
+            return;
+        }
+        if (snapshotService.hasItems()) {
+            log.info("The item table is not empty, the snapshot at {} is not restored", properties.getPath().toAbsolutePath());
+            return;
+        }
+
+        try {
+            snapshotService.restore();
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not restore the item snapshot from {}", properties.getPath().toAbsolutePath(), e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.siemens.internship.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the write-behind mode of item updates, bound from the "item.write-behind" prefix.
+ * Enabled - PUT /api/items/{id} only updates an in-memory buffer, which is written to the database later
+ * Flush interval - how often the buffer is written. It has to stay well below item.processing.watermark-overlap,
+ *                  otherwise an incremental run can start after an update was stamped but before it was written.
+ * Max pending - a flush is started as soon as this many items wait in the buffer. At twice this number the updating
+ *               requests flush themselves, so the buffer cannot grow faster than the database can write it.
+ * Batch size - how many rows are sent in one JDBC batch
+ */
+
+@Data
+@ConfigurationProperties(prefix = "item.write-behind")
+public class WriteBehindProperties {
+    private boolean enabled = false;
+
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    private int maxPending = 1000;
+
+    private int batchSize = 500;
+}
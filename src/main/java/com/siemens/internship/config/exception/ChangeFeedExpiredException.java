@@ -0,0 +1,11 @@
+package com.siemens.internship.config.exception;
+
+/**
+ * Exception used when a client resumes the change feed from a sequence number that is no longer (or not yet) retained
+ */
+
+public class ChangeFeedExpiredException extends Exception {
+    public ChangeFeedExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.siemens.internship.config.exception;
+
+/**
+ * Exception used when a processing job is requested while another one is still running
+ */
+
+public class JobAlreadyRunningException extends Exception {
+    public JobAlreadyRunningException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.siemens.internship.config.exception;
+
+/**
+ * Exception used when an update is sent with an If-Match ETag that is not the current version of the item
+ */
+
+public class PreconditionFailedException extends Exception {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.siemens.internship.config.exception;
+
+/**
+ * Exception used when a client subscribes to the change feed while it already has the maximum number of subscribers
+ */
+
+public class TooManySubscribersException extends Exception {
+    public TooManySubscribersException(String message) {
+        super(message);
+    }
+}
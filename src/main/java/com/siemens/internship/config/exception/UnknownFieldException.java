@@ -0,0 +1,11 @@
+package com.siemens.internship.config.exception;
+
+/**
+ * Exception used when a sparse fieldset asks for a field that items do not have
+ */
+
+public class UnknownFieldException extends Exception {
+    public UnknownFieldException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,58 @@
+package com.siemens.internship.controller;
+
+import com.siemens.internship.model.CacheStatistics;
+import com.siemens.internship.model.SnapshotResult;
+import com.siemens.internship.service.ItemSnapshotService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.AllArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Operational endpoints that are not part of the item API itself.
+ */
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/api/admin")
+public class AdminController {
+    private CacheManager cacheManager;
+    private ItemSnapshotService snapshotService;
+
+    /**
+     * Hit, miss and eviction counters of every Caffeine cache, counted since the application started.
+     */
+    @GetMapping("/caches")
+    public ResponseEntity<List<CacheStatistics>> getCacheStatistics() {
+        List<CacheStatistics> statistics = cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .filter(CaffeineCache.class::isInstance)
+                .map(CaffeineCache.class::cast)
+                .map(cache -> {
+                    CacheStats stats = cache.getNativeCache().stats();
+                    return new CacheStatistics(cache.getName(), cache.getNativeCache().estimatedSize(),
+                            stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+                })
+                .toList();
+
+        return ResponseEntity.ok(statistics);
+    }
+
+    /**
+     * Writes all items to the snapshot file ("item.snapshot.path"), which can be restored on the next start.
+     */
+    @PostMapping("/snapshot")
+    public ResponseEntity<SnapshotResult> snapshot() throws IOException {
+        return ResponseEntity.ok(snapshotService.snapshot());
+    }
+}
@@ -1,16 +1,44 @@
 package com.siemens.internship.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.siemens.internship.config.ChangeFeedProperties;
+import com.siemens.internship.config.exception.ChangeFeedExpiredException;
 import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.JobAlreadyRunningException;
+import com.siemens.internship.config.exception.PreconditionFailedException;
+import com.siemens.internship.config.exception.TooManySubscribersException;
+import com.siemens.internship.config.exception.UnknownFieldException;
+import com.siemens.internship.service.ItemBatchService;
+import com.siemens.internship.service.ItemChangeFeed;
 import com.siemens.internship.service.ItemService;
+import com.siemens.internship.service.ProcessingJobService;
+import com.siemens.internship.model.BatchCreateResult;
 import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemChangeEvent;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.model.ItemSearchHit;
+import com.siemens.internship.model.ItemStatistics;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.model.ProcessingMode;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
 
 /**
  * I modified the Http status codes in order to show correctly if the action was successful or nor.
@@ -27,18 +55,153 @@ import java.util.concurrent.CompletableFuture;
 @AllArgsConstructor
 @RequestMapping("/api/items")
 public class ItemController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
     private ItemService itemService;
+    private ItemBatchService itemBatchService;
+    private ProcessingJobService processingJobService;
+    private ObjectMapper objectMapper;
+    private ChangeFeedProperties changeFeedProperties;
 
+    /**
+     * Items are returned in pages ordered by id. "after" is the cursor (the last id of the previous page) and "limit"
+     * the page size. When the page is full, the cursor of the next page is sent in the X-Next-Cursor header,
+     * so the body stays a plain JSON array.
+     * "status", "email" and "namePrefix" filter the items on the server, the cursor works the same way with them.
+     * "fields" (e.g. fields=name,status) is a sparse fieldset: only those columns are read and sent, plus the id and the version.
+     *
+     * Every page has a strong ETag built from the ids and versions of its items. When it matches the If-None-Match header,
+     * the answer is 304 Not Modified without a body, so nothing is serialized.
+     */
     @GetMapping
-    public ResponseEntity<List<Item>> getAllItems() {
-        return ResponseEntity.ok(itemService.getAllItems());
+    public ResponseEntity<List<?>> getAllItems(@RequestParam(required = false) Long after,
+                                               @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+                                               @RequestParam(required = false) String status,
+                                               @RequestParam(required = false) String email,
+                                               @RequestParam(required = false) String namePrefix,
+                                               @RequestParam(required = false) List<String> fields) throws UnknownFieldException {
+        ItemFilter filter = new ItemFilter(status, email, namePrefix);
+
+        if (fields != null && !fields.isEmpty()) {
+            List<Map<String, Object>> page = itemService.getItemFields(filter, after, limit, fields);
+            return page(page, limit, page.isEmpty() ? null : page.get(page.size() - 1).get("id"),
+                    ItemETags.forRows(page, fields));
+        }
+
+        List<Item> page = itemService.getAllItems(filter, after, limit);
+        return page(page, limit, page.isEmpty() ? null : page.get(page.size() - 1).getId(), ItemETags.forItems(page));
+    }
+
+    private static ResponseEntity<List<?>> page(List<?> page, int limit, Object lastId, String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(lastId));
+        }
+
+        return response.body(page);
+    }
+
+    /**
+     * Streaming mode of the list endpoint, selected with "Accept: application/x-ndjson".
+     * Every item is written as one JSON line while the database cursor is read, instead of building one big array first.
+     * The first line is flushed right away; after that the servlet buffer sends the data as it fills up.
+     */
+    @GetMapping(produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllItems() {
+        ObjectWriter writer = objectMapper.writerFor(Item.class);
+
+        StreamingResponseBody body = out -> {
+            boolean[] first = {true};
+            itemService.streamAllItems(item -> {
+                try {
+                    out.write(writer.writeValueAsBytes(item));
+                    out.write('\n');
+                    if (first[0]) {
+                        out.flush();
+                        first[0] = false;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * Server-Sent Events feed of the item changes, so clients do not have to poll the list endpoint to find them.
+     * Every event has the sequence number as its id and the change type (created, updated, deleted, processed) as its name.
+     * A client resumes with the Last-Event-ID header (sent automatically by EventSource when it reconnects) or ?since=;
+     * without either it only gets the changes from now on.
+     * A client that cannot keep up gets an "overflow" event with the last sequence it received and is disconnected.
+     * HttpStatus.GONE (defined in the GlobalExceptionHandler) - the events after that sequence are no longer retained
+     * HttpStatus.SERVICE_UNAVAILABLE (defined in the GlobalExceptionHandler) - the feed already has item.changes.max-subscribers clients
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+                              @RequestParam(required = false) Long since)
+            throws ChangeFeedExpiredException, TooManySubscribersException {
+        SseEmitter emitter = new SseEmitter(changeFeedProperties.getTimeout().toMillis());
+        ItemChangeFeed.Subscription subscription = itemService.subscribeToChanges(lastEventId != null ? lastEventId : since,
+                new ItemChangeFeed.Listener() {
+                    @Override
+                    public void onEvent(ItemChangeEvent event) throws IOException {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(event.getSequence()))
+                                .name(event.getType().name().toLowerCase())
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+
+                    @Override
+                    public void onOverflow(long lastSequence) {
+                        try {
+                            emitter.send(SseEmitter.event().name("overflow").data(Map.of("lastSequence", lastSequence)));
+                        } catch (IOException ignored) {
+                            // the client is gone anyway
+                        }
+                        emitter.complete();
+                    }
+                });
+
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscription.close());
+        return emitter;
+    }
+
+    /**
+     * Full-text search over the name and the description, e.g. ?q=red chair. Only items containing every word of the query
+     * are returned, best match first; words in the name count more than words in the description.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<ItemSearchHit>> search(@RequestParam @NotBlank String q,
+                                                      @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+        return ResponseEntity.ok(itemService.search(q, limit));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<ItemStatistics> getStatistics() {
+        return ResponseEntity.ok(itemService.getStatistics());
     }
 
+    /**
+     * The item is sent with a strong ETag ("id.version"). A poll with a matching If-None-Match is answered
+     * with 304 Not Modified by Spring before the body is written, and the item usually comes from the cache,
+     * so an unchanged poll costs neither a query nor a serialization.
+     */
     @GetMapping("/{id}")
     public ResponseEntity<Item> getItemById(@PathVariable Long id) throws IdNotExistentException {
         Item item = itemService.findById(id);
 
-        return ResponseEntity.ok(item);
+        return ResponseEntity
+                .ok()
+                .eTag(ItemETags.forItem(item))
+                .body(item);
     }
 
     @PostMapping
@@ -46,6 +209,7 @@ public class ItemController {
         return itemService.createItem(item)
                 .map(saved -> ResponseEntity
                                 .status(HttpStatus.CREATED)
+                                .eTag(ItemETags.forItem(saved))
                                 .body(saved))
                 .orElseGet(
                         () -> ResponseEntity
@@ -54,12 +218,44 @@ public class ItemController {
                 );
     }
 
+    /**
+     * Bulk create. The items are validated one by one, so the response reports which ones were accepted (with their ids)
+     * and which ones were rejected (with the validation errors).
+     * HttpStatus.CREATED - every item was created
+     * HttpStatus.MULTI_STATUS - only part of the items were created
+     * HttpStatus.BAD_REQUEST - no item was valid
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchCreateResult> createItems(@RequestBody List<Item> items) {
+        BatchCreateResult result = itemBatchService.createItems(items);
+
+        HttpStatus status = HttpStatus.MULTI_STATUS;
+        if (result.getRejected().isEmpty()) {
+            status = HttpStatus.CREATED;
+        } else if (result.getAccepted().isEmpty()) {
+            status = HttpStatus.BAD_REQUEST;
+        }
+
+        return ResponseEntity
+                .status(status)
+                .body(result);
+    }
+
+    /**
+     * With an If-Match header the update is only applied if the item was not modified since the client read it.
+     * HttpStatus.PRECONDITION_FAILED (defined in the GlobalExceptionHandler) - the ETag is not the current version of the item
+     * HttpStatus.CONFLICT (defined in the GlobalExceptionHandler) - another update of the same item was saved at the same time
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Item> updateItem(@PathVariable Long id, @Valid @RequestBody Item newItem) throws IdNotExistentException {
-        Item updated = itemService.updateItem(id, newItem);
+    public ResponseEntity<Item> updateItem(@PathVariable Long id, @Valid @RequestBody Item newItem,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws IdNotExistentException, PreconditionFailedException {
+        Long expectedVersion = ifMatch == null ? null : ItemETags.versionFromIfMatch(ifMatch, id);
+        Item updated = itemService.updateItem(id, newItem, expectedVersion);
 
         return ResponseEntity
                 .status(HttpStatus.CREATED)
+                .eTag(ItemETags.forItem(updated))
                 .body(updated);
     }
 
@@ -75,14 +271,33 @@ public class ItemController {
     }
 
     /**
-     * The return type for this method was changed accordingly to the service method for processing
-     *
+     * Processing is a background job: the POST returns right away with the job id (and its URL in the Location header),
+     * the progress is read with GET and the remaining chunks can be stopped with DELETE.
+     * "mode" is INCREMENTAL (only the items changed since the last successful run, the default) or FULL (every item).
+     * HttpStatus.ACCEPTED - the job was started / the cancellation was requested
+     * HttpStatus.CONFLICT (defined in the GlobalExceptionHandler) - another job is still running
+     * HttpStatus.NOT_FOUND (defined in the GlobalExceptionHandler) - there is no job with the given id
      */
+    @PostMapping("/process")
+    public ResponseEntity<ProcessingJobStatus> startProcessing(@RequestParam(defaultValue = "INCREMENTAL") ProcessingMode mode)
+            throws JobAlreadyRunningException {
+        ProcessingJobStatus status = processingJobService.start(mode);
 
-    @GetMapping("/process")
-    public CompletableFuture<ResponseEntity<List<Item>>> processItems() {
-        return itemService
-                .processItemsAsync()
-                .thenApply(ResponseEntity::ok);
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/api/items/process/" + status.getJobId()))
+                .body(status);
+    }
+
+    @GetMapping("/process/{jobId}")
+    public ResponseEntity<ProcessingJobStatus> getProcessingStatus(@PathVariable String jobId) throws IdNotExistentException {
+        return ResponseEntity.ok(processingJobService.getStatus(jobId));
+    }
+
+    @DeleteMapping("/process/{jobId}")
+    public ResponseEntity<ProcessingJobStatus> cancelProcessing(@PathVariable String jobId) throws IdNotExistentException {
+        return ResponseEntity
+                .accepted()
+                .body(processingJobService.cancel(jobId));
     }
 }
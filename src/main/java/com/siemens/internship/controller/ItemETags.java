@@ -0,0 +1,105 @@
+package com.siemens.internship.controller;
+
+import com.siemens.internship.model.Item;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Strong ETags built from the ids and versions only, so they cost no serialization.
+ * A single item is tagged "id.version"; a page is tagged with a digest of the (id, version) pairs it contains,
+ * which changes whenever one of its items is updated, deleted or a new one moves into the page.
+ * A sparse page also digests its fields, in the order they are written, since other fields of the same rows are another body.
+ * The reactive variant of the API tags its items with the same methods, so a client can switch between the two.
+ */
+
+public final class ItemETags {
+    private ItemETags() {
+    }
+
+    static String forItem(Item item) {
+        return forItem(item.getId(), item.getVersion());
+    }
+
+    public static String forItem(Long id, Long version) {
+        return "\"" + id + "." + version + "\"";
+    }
+
+    static String forItems(List<Item> page) {
+        return forPage(page, Item::getId, Item::getVersion);
+    }
+
+    public static <T> String forPage(List<T> page, Function<T, Long> id, Function<T, Long> version) {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+        for (T item : page) {
+            update(digest, buffer, id.apply(item), version.apply(item));
+        }
+        return page(digest);
+    }
+
+    static String forRows(List<Map<String, Object>> page, List<String> fields) {
+        MessageDigest digest = sha256();
+        fields.stream()
+                .map(String::trim)
+                .distinct()
+                .forEach(field -> {
+                    digest.update(field.getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                });
+        digest.update((byte) 0);
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+        for (Map<String, Object> row : page) {
+            update(digest, buffer, (Long) row.get("id"), (Long) row.get("version"));
+        }
+        return page(digest);
+    }
+
+    /**
+     * Version of the item named by an If-Match header, or null when any version is accepted ("*").
+     * A weak or foreign ETag never matches, as required for If-Match, so it is read as version -1.
+     */
+    public static Long versionFromIfMatch(String ifMatch, Long id) {
+        if (ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String prefix = "\"" + id + ".";
+        for (String tag : ifMatch.split(",")) {
+            String value = tag.trim();
+            if (value.startsWith(prefix) && value.endsWith("\"")) {
+                try {
+                    return Long.parseLong(value.substring(prefix.length(), value.length() - 1));
+                } catch (NumberFormatException ignored) {
+                    // not one of our tags, try the next one
+                }
+            }
+        }
+
+        return -1L;
+    }
+
+    private static void update(MessageDigest digest, ByteBuffer buffer, Long id, Long version) {
+        buffer.clear();
+        buffer.putLong(id == null ? 0 : id).putLong(version == null ? 0 : version);
+        digest.update(buffer.array());
+    }
+
+    private static String page(MessageDigest digest) {
+        return "\"p-" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
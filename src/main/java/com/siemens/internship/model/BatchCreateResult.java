@@ -0,0 +1,32 @@
+package com.siemens.internship.model;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Report of a bulk create request. Both lists refer to the items by their position in the request body.
+ * Accepted items only carry the generated id, so the response does not repeat the whole payload.
+ */
+
+@Value
+public class BatchCreateResult {
+    List<Accepted> accepted;
+
+    List<Rejected> rejected;
+
+    @Value
+    public static class Accepted {
+        int index;
+
+        Long id;
+    }
+
+    @Value
+    public static class Rejected {
+        int index;
+
+        Map<String, String> errors;
+    }
+}
@@ -0,0 +1,23 @@
+package com.siemens.internship.model;
+
+import lombok.Value;
+
+/**
+ * Counters of one cache, used to size it: a low hit rate with many evictions means the cache is too small
+ * (or the entries expire too early) for the hot set.
+ */
+
+@Value
+public class CacheStatistics {
+    String name;
+
+    long estimatedSize;
+
+    long hitCount;
+
+    long missCount;
+
+    double hitRate;
+
+    long evictionCount;
+}
@@ -1,20 +1,45 @@
 package com.siemens.internship.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 import jakarta.validation.constraints.Email;
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+/**
+ * The indexes back the server-side filters of the list endpoint. Each one ends with the id, so a filtered keyset page
+ * (WHERE status = ? AND id > ? ORDER BY id LIMIT n) is read straight from the index, without scanning or sorting the table.
+ * The (last_modified, id) index does the same for the incremental processing runs.
+ */
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_item_status", columnList = "status, id"),
+        @Index(name = "idx_item_email", columnList = "email, id"),
+        @Index(name = "idx_item_name", columnList = "name, id"),
+        @Index(name = "idx_item_last_modified", columnList = "last_modified, id")
+})
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class Item {
+    /**
+     * Ids come from a sequence with a pooled optimizer: one database call reserves 50 ids,
+     * so inserting many items does not need one extra round trip per item to fetch its id.
+     * The allocation size is kept equal to hibernate.jdbc.batch_size.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+    @SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -25,4 +50,28 @@ public class Item {
 
     @Email(regexp = "[a-zA-Z0-9._-]+@[a-zA-Z0-9]+\\.[a-z]{2,3}", message = "Email does not have the expected format.")
     private String email;
+
+    /**
+     * Optimistic lock: incremented by every update, so two concurrent writers cannot overwrite each other silently.
+     * It is also what the ETags are built from. Clients can read it but never set it.
+     */
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    /**
+     * Set by Hibernate on every insert and update of the entity. The bulk update of the processing jobs does not touch it,
+     * so processing an item does not make it look changed to the next incremental run.
+     */
+    @UpdateTimestamp
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant lastModified;
+
+    public Item(Long id, String name, String description, String status, String email) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.status = status;
+        this.email = email;
+    }
 }
\ No newline at end of file
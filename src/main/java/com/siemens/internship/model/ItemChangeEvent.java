@@ -0,0 +1,27 @@
+package com.siemens.internship.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * One event of the change feed. The sequence numbers are consecutive, starting at 1 when the application starts,
+ * so a client can resume right after the last event it saw.
+ * A processing event covers a whole chunk of ids and has no item. The ids are a primitive array, so a retained chunk
+ * costs 8 bytes per id instead of a boxed Long each.
+ */
+
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItemChangeEvent {
+    long sequence;
+
+    ItemChangeType type;
+
+    long[] ids;
+
+    Item item;
+
+    Instant timestamp;
+}
@@ -0,0 +1,15 @@
+package com.siemens.internship.model;
+
+/**
+ * Kind of change published on the change feed.
+ * CREATED / UPDATED - the event carries the new state of the item
+ * DELETED - the item is gone
+ * PROCESSED - a processing run marked the items as processed, only their ids are sent
+ */
+
+public enum ItemChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    PROCESSED
+}
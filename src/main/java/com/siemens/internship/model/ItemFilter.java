@@ -0,0 +1,31 @@
+package com.siemens.internship.model;
+
+import lombok.Value;
+
+/**
+ * Server-side filters of the list endpoint. Every field is optional; the ones that are set are combined with AND.
+ */
+
+@Value
+public class ItemFilter {
+    public static final ItemFilter NONE = new ItemFilter(null, null, null);
+
+    String status;
+
+    String email;
+
+    String namePrefix;
+
+    public boolean isEmpty() {
+        return status == null && email == null && (namePrefix == null || namePrefix.isEmpty());
+    }
+
+    /**
+     * The same conditions as the database query (ItemSpecifications), for items that are not in the database yet.
+     */
+    public boolean matches(Item item) {
+        return (status == null || status.equals(item.getStatus()))
+                && (email == null || email.equals(item.getEmail()))
+                && (namePrefix == null || (item.getName() != null && item.getName().startsWith(namePrefix)));
+    }
+}
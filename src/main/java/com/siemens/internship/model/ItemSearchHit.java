@@ -0,0 +1,14 @@
+package com.siemens.internship.model;
+
+import lombok.Value;
+
+/**
+ * One result of the full-text search: the item and how well it matches the query (higher is better).
+ */
+
+@Value
+public class ItemSearchHit {
+    Item item;
+
+    double score;
+}
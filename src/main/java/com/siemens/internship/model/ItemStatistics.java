@@ -0,0 +1,21 @@
+package com.siemens.internship.model;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Number of items in total and per status. Items without a status are counted under "NONE".
+ * The top email domains are estimates, with the number of items of each domain, highest first.
+ */
+
+@Value
+public class ItemStatistics {
+    public static final String NO_STATUS = "NONE";
+
+    long total;
+
+    Map<String, Long> byStatus;
+
+    Map<String, Long> topEmailDomains;
+}
@@ -0,0 +1,14 @@
+package com.siemens.internship.model;
+
+/**
+ * Lifecycle of an id range in a partitioned processing run.
+ * PENDING - nobody works on it yet
+ * CLAIMED - an instance holds its lease; once the lease expires any instance can take it over
+ * DONE - every chunk of the range was handled
+ */
+
+public enum PartitionState {
+    PENDING,
+    CLAIMED,
+    DONE
+}
@@ -0,0 +1,16 @@
+package com.siemens.internship.model;
+
+/**
+ * Lifecycle of a processing job. Only RUNNING jobs can be cancelled, the other states are final.
+ */
+
+public enum ProcessingJobState {
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this != RUNNING;
+    }
+}
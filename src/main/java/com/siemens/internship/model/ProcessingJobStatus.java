@@ -0,0 +1,42 @@
+package com.siemens.internship.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of a processing job, returned by the job endpoints while the job runs and as the final summary once it is done.
+ * Only counters are reported, the processed entities are never kept in memory.
+ */
+
+@Value
+public class ProcessingJobStatus {
+    String jobId;
+
+    ProcessingMode mode;
+
+    /**
+     * Watermark the run started from, null for a full run.
+     */
+    Instant since;
+
+    ProcessingJobState state;
+
+    long total;
+
+    long processed;
+
+    long failed;
+
+    long chunks;
+
+    int concurrencyLimit;
+
+    double itemsPerSecond;
+
+    Instant startedAt;
+
+    Instant finishedAt;
+
+    String error;
+}
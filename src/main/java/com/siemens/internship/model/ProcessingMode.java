@@ -0,0 +1,13 @@
+package com.siemens.internship.model;
+
+/**
+ * Which items a processing job goes through.
+ * FULL - every item of the table
+ * INCREMENTAL - only the items created or modified since the watermark of the last successful run
+ *               (the first incremental run, without a watermark, is a full one)
+ */
+
+public enum ProcessingMode {
+    FULL,
+    INCREMENTAL
+}
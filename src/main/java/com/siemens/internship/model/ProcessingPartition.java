@@ -0,0 +1,77 @@
+package com.siemens.internship.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One id range [rangeStart, rangeEnd) of a cluster-wide processing run (a "generation").
+ *
+ * The instances coordinate only through these rows: a range is taken with a conditional UPDATE that succeeds for
+ * a single instance, the owner renews its lease while it works and marks the range DONE at the end.
+ * The unique (generation, range_start) constraint makes sure that when two instances try to create the same generation,
+ * only one of them succeeds and the other joins it.
+ */
+
+@Entity
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = "uk_partition_generation_range", columnNames = {"generation", "range_start"}),
+        indexes = {
+                @Index(name = "idx_partition_generation_state", columnList = "generation, state"),
+                @Index(name = "idx_partition_completed_at", columnList = "completed_at")
+        }
+)
+@Data
+@NoArgsConstructor
+public class ProcessingPartition {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    private long generation;
+
+    private long rangeStart;
+
+    private long rangeEnd;
+
+    /**
+     * Watermark of an incremental generation (only the items modified since then are processed), null for a full one.
+     */
+    private Instant since;
+
+    private Instant createdAt;
+
+    @Enumerated(EnumType.STRING)
+    private PartitionState state = PartitionState.PENDING;
+
+    private String owner;
+
+    private Instant leaseUntil;
+
+    /**
+     * When the owner marked the range DONE, so the other instances can evict its ids from their item cache.
+     */
+    private Instant completedAt;
+
+    private long processed;
+
+    private long failed;
+
+    public ProcessingPartition(long generation, long rangeStart, long rangeEnd, Instant since, Instant createdAt) {
+        this.generation = generation;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.since = since;
+        this.createdAt = createdAt;
+    }
+}
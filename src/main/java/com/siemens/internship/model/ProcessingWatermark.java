@@ -0,0 +1,25 @@
+package com.siemens.internship.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Point in time up to which every item is known to be processed. It is stored in the database so it survives restarts,
+ * and it only moves forward after a run that completed without failed chunks.
+ */
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProcessingWatermark {
+    @Id
+    private String name;
+
+    private Instant watermark;
+}
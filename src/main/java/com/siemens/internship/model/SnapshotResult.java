@@ -0,0 +1,18 @@
+package com.siemens.internship.model;
+
+import lombok.Value;
+
+/**
+ * Outcome of writing or restoring a snapshot.
+ */
+
+@Value
+public class SnapshotResult {
+    String path;
+
+    long items;
+
+    long bytes;
+
+    long durationMillis;
+}
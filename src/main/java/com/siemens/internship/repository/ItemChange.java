@@ -0,0 +1,13 @@
+package com.siemens.internship.repository;
+
+import java.time.Instant;
+
+/**
+ * Projection of the (lastModified, id) key used to walk the changed items.
+ */
+
+public interface ItemChange {
+    Long getId();
+
+    Instant getLastModified();
+}
@@ -0,0 +1,25 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.Item;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads only some columns of the items, for the sparse fieldsets of the list endpoint.
+ */
+
+public interface ItemFieldRepository {
+    /**
+     * Names of the item attributes that can be selected.
+     */
+    Set<String> FIELDS = Set.of("id", "name", "description", "status", "email", "version");
+
+    /**
+     * Selects only the given attributes (the version too, when it is asked for the ETag of the page) of the items matching the specification, ordered by id.
+     * Every row is returned as a map from attribute name to value, in the order of the requested fields.
+     */
+    List<Map<String, Object>> findFields(Specification<Item> specification, List<String> fields, int limit);
+}
@@ -1,12 +1,124 @@
 package com.siemens.internship.repository;
 
 import com.siemens.internship.model.Item;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ItemRepository extends JpaRepository<Item, Long> {
-    @Query("SELECT id FROM Item")
-    List<Long> findAllIds();
+public interface ItemRepository extends JpaRepository<Item, Long>, JpaSpecificationExecutor<Item>,
+        ItemFieldRepository {
+    /**
+     * Spring Data runs findById, findAllById and count in read-only transactions of their own, which DataSourceConfig would
+     * send to the replica. They are also used by writers (updateItem, the processing engine) that must see the primary, so here
+     * they get a read-write transaction; inside a read-only service method they join its transaction and use the replica.
+     */
+    @Override
+    @Transactional
+    Optional<Item> findById(Long id);
+
+    @Override
+    @Transactional
+    List<Item> findAllById(Iterable<Long> ids);
+
+    @Override
+    @Transactional
+    long count();
+
+    /**
+     * Keyset page of items, used by the list endpoint instead of findAll().
+     */
+    List<Item> findByIdGreaterThanOrderByIdAsc(Long lastId, Limit limit);
+
+    /**
+     * Counts by status computed by the database, only one row per distinct status is sent back.
+     */
+    @Query("SELECT i.status AS status, COUNT(i) AS count FROM Item i GROUP BY i.status")
+    List<StatusCount> countByStatus();
+
+    /**
+     * Reads the whole table through a database cursor. The rows are fetched from the driver in batches of 500
+     * and are marked read-only, so Hibernate does not keep a snapshot of each one for dirty checking.
+     * It must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT i FROM Item i ORDER BY i.id")
+    Stream<Item> streamAll();
+
+    /**
+     * Keyset page of ids: only the ids strictly greater than lastId, in ascending order.
+     * Unlike OFFSET paging, the cost of a page does not grow with its position in the table.
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.id > :lastId ORDER BY i.id")
+    List<Long> findIdsAfter(@Param("lastId") Long lastId, Limit limit);
+
+    /**
+     * Keyset page of the items modified at or after "since", ordered by (lastModified, id) and read from the
+     * (last_modified, id) index. The key of the last row is the cursor of the next page, so a run only reads the changed rows.
+     */
+    @Query("SELECT i.id AS id, i.lastModified AS lastModified FROM Item i " +
+            "WHERE i.lastModified > :lastModified OR (i.lastModified = :lastModified AND i.id > :lastId) " +
+            "ORDER BY i.lastModified, i.id")
+    List<ItemChange> findChangesAfter(@Param("lastModified") Instant lastModified, @Param("lastId") Long lastId, Limit limit);
+
+    long countByLastModifiedGreaterThanEqual(Instant since);
+
+    @Query("SELECT MIN(i.id) FROM Item i")
+    Long findMinId();
+
+    @Query("SELECT MAX(i.id) FROM Item i")
+    Long findMaxId();
+
+    /**
+     * Keyset page of ids inside one partition [.., end) of a partitioned run.
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.id > :lastId AND i.id < :end ORDER BY i.id")
+    List<Long> findIdsInRange(@Param("lastId") Long lastId, @Param("end") Long end, Limit limit);
+
+    /**
+     * Same as findIdsInRange, restricted to the items modified since the watermark of an incremental run.
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.id > :lastId AND i.id < :end AND i.lastModified >= :since ORDER BY i.id")
+    List<Long> findChangedIdsInRange(@Param("lastId") Long lastId, @Param("end") Long end, @Param("since") Instant since,
+                                     Limit limit);
+
+    /**
+     * Changes the status of a whole chunk with one UPDATE statement, without loading the entities.
+     * The version is incremented too, so the ETags change and a concurrent update of the same item fails instead of undoing it.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Item i SET i.status = :status, i.version = i.version + 1 WHERE i.id IN :ids")
+    int updateStatusByIds(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+    /**
+     * The ids of the list that still exist, read from the primary.
+     */
+    @Transactional
+    @Query("SELECT i.id FROM Item i WHERE i.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes the item with one DELETE statement and returns the number of rows removed. Unlike deleteById,
+     * which ignores an id that does not exist, the caller can tell whether there was anything to delete.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Item i WHERE i.id = :id")
+    int deleteItemById(@Param("id") Long id);
 }
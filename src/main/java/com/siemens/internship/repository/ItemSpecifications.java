@@ -0,0 +1,55 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemFilter;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Criteria for the filtered list queries. Each filter is an equality or a prefix match on an indexed column,
+ * so the database can answer it from the index instead of scanning the table.
+ */
+
+public final class ItemSpecifications {
+    private ItemSpecifications() {
+    }
+
+    public static Specification<Item> matching(ItemFilter filter, Long after) {
+        Specification<Item> specification = idAfter(after);
+
+        if (filter.getStatus() != null) {
+            specification = specification.and(hasStatus(filter.getStatus()));
+        }
+        if (filter.getEmail() != null) {
+            specification = specification.and(hasEmail(filter.getEmail()));
+        }
+        if (filter.getNamePrefix() != null && !filter.getNamePrefix().isEmpty()) {
+            specification = specification.and(nameStartsWith(filter.getNamePrefix()));
+        }
+
+        return specification;
+    }
+
+    public static Specification<Item> idAfter(Long after) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), after == null ? Long.MIN_VALUE : after);
+    }
+
+    public static Specification<Item> hasStatus(String status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Item> hasEmail(String email) {
+        return (root, query, cb) -> cb.equal(root.get("email"), email);
+    }
+
+    /**
+     * LIKE 'prefix%' with the wildcards of the prefix itself escaped, so it stays an index range scan.
+     */
+    public static Specification<Item> nameStartsWith(String prefix) {
+        String escaped = prefix
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+
+        return (root, query, cb) -> cb.like(root.get("name"), escaped + "%", '\\');
+    }
+}
@@ -0,0 +1,94 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.PartitionState;
+import com.siemens.internship.model.ProcessingPartition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Every state change of a partition is a single conditional UPDATE, so it is atomic in the database
+ * and the returned row count tells the instance whether it won.
+ */
+
+public interface ProcessingPartitionRepository extends JpaRepository<ProcessingPartition, Long> {
+    /**
+     * Read-write transaction, so a partition just claimed is read back from the primary (see ItemRepository.findById).
+     */
+    @Override
+    @Transactional
+    Optional<ProcessingPartition> findById(Long id);
+
+    @Query("SELECT MAX(p.generation) FROM ProcessingPartition p")
+    Long findLatestGeneration();
+
+    Optional<ProcessingPartition> findFirstByGeneration(long generation);
+
+    long countByGenerationAndStateNot(long generation, PartitionState state);
+
+    @Query("SELECT COALESCE(SUM(p.failed), 0) FROM ProcessingPartition p WHERE p.generation = :generation")
+    long sumFailedByGeneration(@Param("generation") long generation);
+
+    /**
+     * Ranges of the generation that can be taken: never claimed yet, or claimed by an instance whose lease expired.
+     */
+    @Query("SELECT p.id FROM ProcessingPartition p WHERE p.generation = :generation " +
+            "AND (p.state = com.siemens.internship.model.PartitionState.PENDING " +
+            "OR (p.state = com.siemens.internship.model.PartitionState.CLAIMED AND p.leaseUntil < :now)) " +
+            "ORDER BY p.rangeStart")
+    List<Long> findClaimable(@Param("generation") long generation, @Param("now") Instant now, Limit limit);
+
+    /**
+     * Takes the range if it is still claimable. Two instances racing for the same row are serialized by the database,
+     * the second one re-evaluates the condition and updates nothing.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessingPartition p SET p.state = com.siemens.internship.model.PartitionState.CLAIMED, " +
+            "p.owner = :owner, p.leaseUntil = :leaseUntil WHERE p.id = :id " +
+            "AND (p.state = com.siemens.internship.model.PartitionState.PENDING " +
+            "OR (p.state = com.siemens.internship.model.PartitionState.CLAIMED AND p.leaseUntil < :now))")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") Instant leaseUntil,
+              @Param("now") Instant now);
+
+    /**
+     * Extends the lease, only while this instance still owns the range. 0 means the lease was lost to another instance.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessingPartition p SET p.leaseUntil = :leaseUntil WHERE p.id = :id AND p.owner = :owner " +
+            "AND p.state = com.siemens.internship.model.PartitionState.CLAIMED")
+    int renew(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessingPartition p SET p.state = com.siemens.internship.model.PartitionState.DONE, " +
+            "p.processed = :processed, p.failed = :failed, p.leaseUntil = null, p.completedAt = :completedAt " +
+            "WHERE p.id = :id AND p.owner = :owner AND p.state = com.siemens.internship.model.PartitionState.CLAIMED")
+    int complete(@Param("id") Long id, @Param("owner") String owner, @Param("processed") long processed,
+                 @Param("failed") long failed, @Param("completedAt") Instant completedAt);
+
+    /**
+     * Ranges that other instances finished since the given time, whose items may be cached here with their old status.
+     */
+    @Query("SELECT p FROM ProcessingPartition p WHERE p.state = com.siemens.internship.model.PartitionState.DONE " +
+            "AND p.completedAt >= :since AND p.owner <> :owner")
+    List<ProcessingPartition> findCompletedByOthersSince(@Param("since") Instant since, @Param("owner") String owner);
+
+    /**
+     * Gives the range back right away (e.g. when the job is cancelled) instead of letting its lease expire.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessingPartition p SET p.state = com.siemens.internship.model.PartitionState.PENDING, " +
+            "p.owner = null, p.leaseUntil = null WHERE p.id = :id AND p.owner = :owner " +
+            "AND p.state = com.siemens.internship.model.PartitionState.CLAIMED")
+    int release(@Param("id") Long id, @Param("owner") String owner);
+}
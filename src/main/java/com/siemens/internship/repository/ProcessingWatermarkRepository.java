@@ -0,0 +1,16 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.ProcessingWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface ProcessingWatermarkRepository extends JpaRepository<ProcessingWatermark, String> {
+    /**
+     * Read-write transaction, so the watermark is always read from the primary (see ItemRepository.findById).
+     */
+    @Override
+    @Transactional
+    Optional<ProcessingWatermark> findById(String name);
+}
@@ -0,0 +1,11 @@
+package com.siemens.internship.repository;
+
+/**
+ * Projection of one row of the GROUP BY status aggregate.
+ */
+
+public interface StatusCount {
+    String getStatus();
+
+    long getCount();
+}
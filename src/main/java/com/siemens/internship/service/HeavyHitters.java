@@ -0,0 +1,106 @@
+package com.siemens.internship.service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Approximate top-k counter over a stream of additions and removals: a count-min sketch estimates the count of every key
+ * in a fixed amount of memory, and the "capacity" keys with the highest estimates are kept as candidates next to it.
+ *
+ * The sketch has "depth" rows of "width" counters; a key adds its delta to one counter per row (chosen by a different hash
+ * in every row) and its estimate is the smallest of those counters, so it can only be too high, when other keys share
+ * all of its counters. A key becomes a candidate when it is added and its estimate beats the weakest candidate.
+ * Removals lower the counters and the estimate of a candidate, but a key that is not a candidate only comes back
+ * with its next addition, so after many removals the list can be slightly off until it is rebuilt.
+ *
+ * Not thread safe, the ItemAggregates call it under their lock.
+ */
+
+final class HeavyHitters {
+    private final long[][] counters;
+    private final int width;
+    private final int capacity;
+    private final Map<String, Long> candidates = new HashMap<>();
+
+    HeavyHitters(int capacity, int width, int depth) {
+        this.capacity = capacity;
+        this.width = width;
+        this.counters = new long[depth][width];
+    }
+
+    void add(String key, long delta) {
+        long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            int index = index(hash, row);
+            counters[row][index] += delta;
+            estimate = Math.min(estimate, counters[row][index]);
+        }
+
+        if (candidates.containsKey(key)) {
+            if (estimate > 0) {
+                candidates.put(key, estimate);
+            } else {
+                candidates.remove(key);
+            }
+            return;
+        }
+
+        if (delta <= 0 || estimate <= 0) {
+            return;
+        }
+        if (candidates.size() < capacity) {
+            candidates.put(key, estimate);
+            return;
+        }
+
+        Map.Entry<String, Long> weakest = candidates.entrySet().stream()
+                .min(Map.Entry.comparingByValue())
+                .orElseThrow();
+        if (estimate > weakest.getValue()) {
+            candidates.remove(weakest.getKey());
+            candidates.put(key, estimate);
+        }
+    }
+
+    long estimate(String key) {
+        long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            estimate = Math.min(estimate, counters[row][index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * The candidates with their estimated count, highest first.
+     */
+    Map<String, Long> top() {
+        Map<String, Long> top = new LinkedHashMap<>();
+        candidates.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    /**
+     * 64-bit FNV-1a of the key; every row then mixes it with its own constant, so the rows collide on different keys.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private int index(long hash, int row) {
+        long mixed = (hash ^ (0x9e3779b97f4a7c15L * (row + 1))) * 0xbf58476d1ce4e5b9L;
+        mixed ^= mixed >>> 31;
+        return (int) Math.floorMod(mixed, (long) width);
+    }
+}
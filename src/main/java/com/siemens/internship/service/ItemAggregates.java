@@ -0,0 +1,382 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.AggregateProperties;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemStatistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory aggregates of the item table, so GET /api/items/stats never scans it: the number of items per status
+ * and the approximate top email domains (HeavyHitters).
+ *
+ * They are built once from the table at startup (ItemWarmUpRunner) and then changed incrementally by the ItemService
+ * (create, update, delete), the ItemBatchService and the processing runs. For every item only its status and email
+ * domain are kept, so an update, a delete or a processed chunk knows what to take away without reading the old row.
+ * Reading the statistics copies a map per status and the top domains, whatever the number of items.
+ *
+ * A rebuild reads the table while it can still change, so the changes applied during the scan are also recorded and
+ * replayed over the new aggregates before they replace the old ones (the last recorded state of an item is newer than
+ * whatever the scan read for it).
+ *
+ * Changes made outside this instance (another instance, a partitioned run, SQL) are not seen. So every
+ * "reconcile-interval" the counts per status are compared with one GROUP BY. The scan and the GROUP BY run without a transaction,
+ * so they read the primary (DataSourceConfig), never a replica that may lag behind. The comparison only counts when nothing
+ * changed here while the query ran, otherwise the GROUP BY is run again, a few times at most. After two comparisons in a row
+ * that disagree, the aggregates are rebuilt. With steady writes every attempt can be disturbed, so after a few skipped
+ * reconciliations in a row the aggregates are rebuilt as well: the rebuild replays the changes made during its scan, so it
+ * does not need a quiet moment.
+ * Metrics: "item.aggregates.reconciliations" (outcome=consistent|drift|skipped) and "item.aggregates.rebuilds".
+ */
+
+@Slf4j
+@Component
+public class ItemAggregates {
+    private static final String SCAN = "SELECT id, status, email FROM item ORDER BY id";
+    private static final String COUNT_BY_STATUS = "SELECT status, COUNT(*) AS count FROM item GROUP BY status";
+
+    /**
+     * How many times one reconciliation runs the GROUP BY before it gives up because the aggregates kept changing.
+     */
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    /**
+     * Skipped reconciliations in a row after which the aggregates are rebuilt instead of compared.
+     */
+    private static final int SKIPS_BEFORE_REBUILD = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AggregateProperties properties;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService reconciler;
+    private final Counter consistent;
+    private final Counter drift;
+    private final Counter skipped;
+    private final Counter rebuilds;
+
+    private Aggregates aggregates;
+    private Map<Long, Tracked> changedDuringRebuild;
+    private long changes;
+    private boolean driftSeen;
+    private int consecutiveSkips;
+    private volatile boolean built;
+
+    /**
+     * What the aggregates know about one item. A null domain means no valid email.
+     */
+    @Value
+    static class Tracked {
+        String status;
+
+        String domain;
+    }
+
+    /**
+     * One consistent set of aggregates; replaced as a whole by a rebuild.
+     */
+    private final class Aggregates {
+        private final Map<Long, Tracked> items = new HashMap<>();
+        private final Map<String, Long> byStatus = new HashMap<>();
+        private final HeavyHitters domains = new HeavyHitters(properties.getTopDomains(), properties.getSketchWidth(),
+                properties.getSketchDepth());
+
+        /**
+         * Replaces what is known about the item, null removes it.
+         */
+        private void apply(Long id, Tracked tracked) {
+            Tracked old = tracked == null ? items.remove(id) : items.put(id, tracked);
+            if (old != null) {
+                byStatus.computeIfPresent(old.status, (status, count) -> count == 1 ? null : count - 1);
+                if (old.domain != null) {
+                    domains.add(old.domain, -1);
+                }
+            }
+            if (tracked != null) {
+                byStatus.merge(tracked.status, 1L, Long::sum);
+                if (tracked.domain != null) {
+                    domains.add(tracked.domain, 1);
+                }
+            }
+        }
+    }
+
+    public ItemAggregates(JdbcTemplate jdbcTemplate, AggregateProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.aggregates = new Aggregates();
+        this.consistent = reconciliationCounter("consistent", meterRegistry);
+        this.drift = reconciliationCounter("drift", meterRegistry);
+        this.skipped = reconciliationCounter("skipped", meterRegistry);
+        this.rebuilds = Counter.builder("item.aggregates.rebuilds")
+                .description("Times the item aggregates were rebuilt from the table")
+                .register(meterRegistry);
+
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-aggregates");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getReconcileInterval().toMillis();
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private static Counter reconciliationCounter(String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("item.aggregates.reconciliations")
+                .description("Comparisons of the in-memory counts per status with the database")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Reads the status and email of every item and replaces the aggregates with new ones built from them.
+     * Two rebuilds never run at the same time, they would share the record of the changes.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Aggregates rebuilt = new Aggregates();
+        try {
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SCAN);
+                statement.setFetchSize(1000);
+                return statement;
+            }, (ResultSet rs) -> {
+                rebuilt.apply(rs.getLong("id"), track(rs.getString("status"), rs.getString("email")));
+            });
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            replayed = changedDuringRebuild.size();
+            changedDuringRebuild.forEach(rebuilt::apply);
+            changedDuringRebuild = null;
+            aggregates = rebuilt;
+            changes++;
+            driftSeen = false;
+            consecutiveSkips = 0;
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuilds.increment();
+        log.info("Item aggregates built: {} items, {} statuses, {} changes replayed in {} ms", rebuilt.items.size(),
+                rebuilt.byStatus.size(), replayed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Counts a new item or replaces what is known about an existing one.
+     */
+    public void put(Item item) {
+        apply(item.getId(), track(item.getStatus(), item.getEmail()));
+    }
+
+    /**
+     * Counts the items once the current transaction commits, so a rolled back batch is never counted.
+     */
+    public void putAfterCommit(Collection<Item> items) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            items.forEach(this::put);
+            return;
+        }
+        List<Item> committed = List.copyOf(items);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed.forEach(ItemAggregates.this::put);
+            }
+        });
+    }
+
+    /**
+     * Moves the items of a processed chunk to the new status, keeping their domains. Unknown ids (deleted since) are skipped.
+     */
+    public void setStatus(Collection<Long> ids, String status) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                Tracked old = aggregates.items.get(id);
+                if (old != null) {
+                    applyLocked(id, new Tracked(Objects.toString(status, ItemStatistics.NO_STATUS), old.domain));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        apply(id, null);
+    }
+
+    /**
+     * Total and counts per status as they are now, and the top email domains with their estimated number of items.
+     */
+    public ItemStatistics getStatistics() {
+        lock.readLock().lock();
+        try {
+            return new ItemStatistics(aggregates.items.size(), new TreeMap<>(aggregates.byStatus), aggregates.domains.top());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compares the counts per status with the database. Returns true when they match or the comparison was not conclusive.
+     */
+    public boolean reconcile() {
+        if (!built) {
+            return true;
+        }
+
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            Boolean consistentWithTable = compareWithTable();
+            if (consistentWithTable != null) {
+                return consistentWithTable;
+            }
+        }
+
+        boolean rebuild;
+        lock.writeLock().lock();
+        try {
+            skipped.increment();
+            consecutiveSkips++;
+            rebuild = consecutiveSkips >= SKIPS_BEFORE_REBUILD;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (rebuild) {
+            log.info("Item aggregates changed during {} reconciliations in a row, rebuilding them", SKIPS_BEFORE_REBUILD);
+            rebuild();
+        }
+        return true;
+    }
+
+    /**
+     * Runs the GROUP BY once and compares it with the aggregates, rebuilding them on the second drift in a row.
+     * Returns null when the aggregates changed while the query ran, so the two sides may not show the same moment.
+     */
+    private Boolean compareWithTable() {
+        long changesBefore;
+        lock.readLock().lock();
+        try {
+            changesBefore = changes;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Long> expected = new TreeMap<>();
+        jdbcTemplate.query(COUNT_BY_STATUS, (ResultSet rs) -> {
+            expected.merge(Objects.toString(rs.getString("status"), ItemStatistics.NO_STATUS), rs.getLong("count"), Long::sum);
+        });
+
+        Map<String, Long> actual;
+        boolean rebuild;
+        lock.writeLock().lock();
+        try {
+            if (changes != changesBefore) {
+                return null;
+            }
+            consecutiveSkips = 0;
+            actual = new TreeMap<>(aggregates.byStatus);
+            if (actual.equals(expected)) {
+                consistent.increment();
+                driftSeen = false;
+                return true;
+            }
+            drift.increment();
+            rebuild = driftSeen;
+            driftSeen = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.warn("Item aggregates drifted from the database: {} in memory, {} in the table{}", actual, expected,
+                rebuild ? ", rebuilding them" : "");
+        if (rebuild) {
+            rebuild();
+        }
+        return false;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException ex) {
+            log.error("Reconciliation of the item aggregates failed", ex);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        reconciler.shutdownNow();
+    }
+
+    private void apply(Long id, Tracked tracked) {
+        lock.writeLock().lock();
+        try {
+            applyLocked(id, tracked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyLocked(Long id, Tracked tracked) {
+        aggregates.apply(id, tracked);
+        changes++;
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(id, tracked);
+        }
+    }
+
+    private static Tracked track(String status, String email) {
+        return new Tracked(Objects.toString(status, ItemStatistics.NO_STATUS), domainOf(email));
+    }
+
+    static String domainOf(String email) {
+        int at = email == null ? -1 : email.lastIndexOf('@');
+        if (at < 0 || at == email.length() - 1) {
+            return null;
+        }
+        return email.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+}
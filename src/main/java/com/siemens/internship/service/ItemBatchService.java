@@ -0,0 +1,88 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.BatchProperties;
+import com.siemens.internship.model.BatchCreateResult;
+import com.siemens.internship.model.Item;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service used for loading many items at once.
+ *
+ * Every item is validated on its own, so one bad item does not reject the whole request.
+ * The valid ones are persisted in a single transaction: Hibernate groups the inserts into JDBC batches
+ * (hibernate.jdbc.batch_size) and the pooled sequence hands out the ids from memory.
+ * The persistence context is flushed and cleared every "flush-size" items, so it does not grow with the request.
+ */
+
+@Slf4j
+@Service
+@AllArgsConstructor
+public class ItemBatchService {
+    private EntityManager entityManager;
+    private Validator validator;
+    private BatchProperties properties;
+    private ItemSearchIndex searchIndex;
+    private ItemChangeFeed changeFeed;
+    private ItemAggregates aggregates;
+
+    @Transactional
+    public BatchCreateResult createItems(List<Item> items) {
+        List<BatchCreateResult.Accepted> accepted = new ArrayList<>();
+        List<BatchCreateResult.Rejected> rejected = new ArrayList<>();
+        List<Item> persisted = new ArrayList<>();
+        int pending = 0;
+
+        for (int index = 0; index < items.size(); index++) {
+            Item item = items.get(index);
+            Map<String, String> errors = validate(item);
+            if (!errors.isEmpty()) {
+                rejected.add(new BatchCreateResult.Rejected(index, errors));
+                continue;
+            }
+
+            item.setId(null);
+            entityManager.persist(item);
+            accepted.add(new BatchCreateResult.Accepted(index, item.getId()));
+            persisted.add(item);
+
+            if (++pending == properties.getFlushSize()) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+
+        searchIndex.putAfterCommit(persisted);
+        aggregates.putAfterCommit(persisted);
+        changeFeed.publishCreatedAfterCommit(persisted);
+        log.info("Batch create: {} accepted, {} rejected", accepted.size(), rejected.size());
+        return new BatchCreateResult(accepted, rejected);
+    }
+
+    private Map<String, String> validate(Item item) {
+        Map<String, String> errors = new HashMap<>();
+        if (item == null) {
+            errors.put("item", "Item must not be null.");
+            return errors;
+        }
+
+        Set<ConstraintViolation<Item>> violations = validator.validate(item);
+        for (ConstraintViolation<Item> violation : violations) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+
+        return errors;
+    }
+}
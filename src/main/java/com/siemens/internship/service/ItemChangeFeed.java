@@ -0,0 +1,263 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ChangeFeedProperties;
+import com.siemens.internship.config.exception.ChangeFeedExpiredException;
+import com.siemens.internship.config.exception.TooManySubscribersException;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemChangeEvent;
+import com.siemens.internship.model.ItemChangeType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory change feed of the items, behind GET /api/items/changes.
+ *
+ * Every change gets the next sequence number and goes into a ring buffer holding the latest "retained events", as long as
+ * they carry no more than "retained ids" together (a processed chunk has up to chunk-size ids), so a client that reconnects with the last sequence it saw gets everything it missed, as long as it is still retained.
+ *
+ * Publishing never waits for a client: the event is only offered to the bounded queue of every subscriber, and a sender
+ * thread of that subscriber writes it to the connection. A subscriber whose queue is full is disconnected
+ * (after being told the last sequence it received), so one slow client cannot slow down the writers or fill the memory.
+ *
+ * A sender blocked on a slow connection holds its thread until the write fails or the connection times out, so the number
+ * of subscribers is capped ("max subscribers", more are rejected) and the senders run on a pool of that size.
+ * On Java 21 or newer they are virtual threads, so even a full pool of stuck senders holds no platform threads.
+ */
+
+@Slf4j
+@Component
+public class ItemChangeFeed {
+    /**
+     * Receives the events of one subscription, always on the same sender thread and in sequence order.
+     */
+    public interface Listener {
+        void onEvent(ItemChangeEvent event) throws Exception;
+
+        /**
+         * The subscriber fell too far behind and nothing more is sent to it. It can resume after lastSequence.
+         */
+        void onOverflow(long lastSequence);
+    }
+
+    private final ChangeFeedProperties properties;
+    private final Deque<ItemChangeEvent> ring = new ArrayDeque<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders;
+    private final Map<ItemChangeType, Counter> publishedEvents = new EnumMap<>(ItemChangeType.class);
+    private final Counter overflows;
+    private final Counter rejected;
+    private long retainedIds;
+    private long nextSequence = 1;
+
+    public ItemChangeFeed(ChangeFeedProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(properties.getMaxSubscribers(), properties.getMaxSubscribers(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), senderThreads());
+        pool.allowCoreThreadTimeOut(true);
+        this.senders = pool;
+
+        for (ItemChangeType type : ItemChangeType.values()) {
+            publishedEvents.put(type, Counter.builder("item.changes.events")
+                    .tag("type", type.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.overflows = meterRegistry.counter("item.changes.overflows");
+        this.rejected = meterRegistry.counter("item.changes.rejected");
+        Gauge.builder("item.changes.subscribers", subscriptions, List::size).register(meterRegistry);
+    }
+
+    private static ThreadFactory senderThreads() {
+        if (Runtime.version().feature() >= 21) {
+            return new VirtualThreadTaskExecutor("item-changes-").getVirtualThreadFactory();
+        }
+        AtomicInteger threads = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "item-changes-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public void publish(ItemChangeType type, Item item) {
+        publish(type, List.of(item.getId()), item);
+    }
+
+    public void publish(ItemChangeType type, List<Long> ids) {
+        publish(type, ids, null);
+    }
+
+    /**
+     * Publishes the creation of the items once the surrounding transaction commits, so the clients never hear about rows
+     * that were rolled back (or that they cannot read yet). Without a transaction they are published right away.
+     */
+    public void publishCreatedAfterCommit(Collection<Item> items) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            items.forEach(item -> publish(ItemChangeType.CREATED, item));
+            return;
+        }
+        List<Item> committed = List.copyOf(items);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed.forEach(item -> publish(ItemChangeType.CREATED, item));
+            }
+        });
+    }
+
+    private void publish(ItemChangeType type, List<Long> ids, Item item) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        publishedEvents.get(type).increment();
+        synchronized (this) {
+            ItemChangeEvent event = new ItemChangeEvent(nextSequence, type, ids.stream().mapToLong(Long::longValue).toArray(),
+                    item, Instant.now());
+            ring.addLast(event);
+            retainedIds += event.getIds().length;
+            while (ring.size() > 1 && (ring.size() > properties.getRetainedEvents() || retainedIds > properties.getRetainedIds())) {
+                retainedIds -= ring.removeFirst().getIds().length;
+            }
+            nextSequence++;
+            for (Subscription subscription : subscriptions) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Starts sending the events to the listener: the retained ones after afterSequence first (none when it is null),
+     * then every new one. The returned subscription has to be closed when the client goes away.
+     */
+    public synchronized Subscription subscribe(Long afterSequence, Listener listener)
+            throws ChangeFeedExpiredException, TooManySubscribersException {
+        if (subscriptions.size() >= properties.getMaxSubscribers()) {
+            rejected.increment();
+            throw new TooManySubscribersException("The change feed already has " + subscriptions.size()
+                    + " subscribers, try again later");
+        }
+        long last = nextSequence - 1;
+        long oldest = ring.isEmpty() ? nextSequence : ring.getFirst().getSequence();
+        List<ItemChangeEvent> backlog = new ArrayList<>();
+        if (afterSequence != null) {
+            if (afterSequence > last || afterSequence < oldest - 1) {
+                throw new ChangeFeedExpiredException("Cannot resume after event " + afterSequence + ", the retained events are "
+                        + oldest + " to " + last + ". Reload the items and subscribe again without a sequence.");
+            }
+            for (ItemChangeEvent event : ring) {
+                if (event.getSequence() > afterSequence) {
+                    backlog.add(event);
+                }
+            }
+        }
+
+        // the missed events are sent on top of the normal buffer, a resuming client is not disconnected for them
+        Subscription subscription = new Subscription(listener, properties.getSubscriberBuffer() + backlog.size(),
+                afterSequence == null ? last : afterSequence);
+        backlog.forEach(subscription::offer);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    @PreDestroy
+    public void close() {
+        subscriptions.forEach(Subscription::close);
+        senders.shutdownNow();
+    }
+
+    /**
+     * Queue and sender of one client. At most one sender task runs per subscription, it stops when the queue is empty
+     * and the next offer starts a new one.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Listener listener;
+        private final BlockingQueue<ItemChangeEvent> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+        private long lastSent;
+
+        private Subscription(Listener listener, int capacity, long lastSent) {
+            this.listener = listener;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+            this.lastSent = lastSent;
+        }
+
+        private void offer(ItemChangeEvent event) {
+            if (closed || overflowed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                overflowed = true;
+            }
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::send);
+            }
+        }
+
+        private void send() {
+            try {
+                while (!closed) {
+                    if (overflowed) {
+                        close();
+                        overflows.increment();
+                        log.info("A change feed subscriber fell behind and was disconnected after event {}", lastSent);
+                        listener.onOverflow(lastSent);
+                        return;
+                    }
+                    ItemChangeEvent event = queue.poll();
+                    if (event == null) {
+                        sending.set(false);
+                        // an offer between the poll and the reset did not start a sender, so this one goes on
+                        if ((queue.isEmpty() && !overflowed) || !sending.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    listener.onEvent(event);
+                    lastSent = event.getSequence();
+                }
+            } catch (Exception ex) {
+                log.debug("A change feed subscriber went away: {}", ex.getMessage());
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            queue.clear();
+        }
+    }
+}
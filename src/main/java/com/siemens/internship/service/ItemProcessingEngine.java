@@ -0,0 +1,542 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.AsyncConfig;
+import com.siemens.internship.config.BulkheadExecutor;
+import com.siemens.internship.config.CacheConfig;
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemChangeType;
+import com.siemens.internship.model.ProcessingJobState;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.model.ProcessingMode;
+import com.siemens.internship.model.ProcessingPartition;
+import com.siemens.internship.model.ProcessingWatermark;
+import com.siemens.internship.repository.ItemChange;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.ProcessingWatermarkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Set-based processing engine that replaces the "one findById + one save per id" approach.
+ *
+ * The table is walked in keyset pages (id > lastId ORDER BY id LIMIT chunkSize), so reading a page costs the same
+ * no matter how far into the table we are. Every page is then updated with a single bulk UPDATE on the db bulkhead.
+ *
+ * The chunks in flight are bounded by an AdaptiveConcurrencyLimiter: the reading thread blocks until the window has room,
+ * so the bulkhead queue never overflows and only a bounded number of id pages are held in memory, whatever the table size.
+ * The window starts at "parallelism" and follows the latency of the chunk updates (AIMD between min and max concurrency),
+ * so the job runs as fast as the database allows without taking every connection from the CRUD endpoints.
+ * That latency is measured from the submission, so a db bulkhead crowded by other work shrinks the window too.
+ * A chunk that the bulkhead rejects, or that misses its deadline there, counts as failed and the run goes on.
+ *
+ * The bulk UPDATE bypasses the entities, so the ids of every chunk are evicted from the item cache before and after it.
+ * Every written chunk is also published on the ItemChangeFeed as one PROCESSED event.
+ *
+ * An incremental run starts from the persisted watermark and walks only the items modified since then, in keyset pages
+ * over the (lastModified, id) index, so its cost follows the number of changed items instead of the table size.
+ * When a run completes without failed chunks, the watermark moves to the start of that run (minus a small overlap);
+ * a cancelled or partly failed run leaves it where it was, so nothing it skipped is lost.
+ *
+ * With "partitioned" enabled, the instances sharing the database split every run into id ranges claimed through leases
+ * (see PartitionCoordinator), so each row is processed by one instance and the work spreads over all of them.
+ *
+ * When ItemProcessingStage beans exist, the chunks go through a StagedPipeline instead: the items are loaded, passed through
+ * the stages (on the cpu bulkhead) and written back with a JDBC batch that also checks their version, so an item changed while it was in the
+ * pipeline is not overwritten (it is counted as failed and picked up by the next incremental run). Without stages,
+ * nothing has to be loaded and the single bulk UPDATE per chunk is kept.
+ *
+ * Metrics: "item.processing.chunk" times every chunk update (outcome=success|failure), "item.processing.items" counts
+ * the processed and failed items and "item.processing.concurrency.limit" shows the current size of the window.
+ */
+
+@Slf4j
+@Component
+public class ItemProcessingEngine {
+    public static final String PROCESSED_STATUS = "PROCESSED";
+    public static final String WATERMARK_NAME = "item-processing";
+
+    private static final String PERSIST_ITEM = "UPDATE item SET name = ?, description = ?, status = ?, email = ?, " +
+            "version = version + 1 WHERE id = ? AND version = ?";
+    private static final String BACKFILL_LAST_MODIFIED = "UPDATE item SET last_modified = ? WHERE last_modified IS NULL";
+
+    private final ItemRepository itemRepository;
+    private final ProcessingWatermarkRepository watermarkRepository;
+    private final PartitionCoordinator partitionCoordinator;
+    private final BulkheadExecutor dbExecutor;
+    private final BulkheadExecutor cpuExecutor;
+    private final ProcessingProperties properties;
+    private final CacheManager cacheManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<ItemProcessingStage> stages;
+    private final ItemChangeFeed changeFeed;
+    private final ItemAggregates aggregates;
+    private final MeterRegistry meterRegistry;
+
+    private final Timer chunkSuccessTimer;
+    private final Timer chunkFailureTimer;
+    private final Counter processedItems;
+    private final Counter failedItems;
+    private final AtomicInteger concurrencyLimit = new AtomicInteger();
+
+    public ItemProcessingEngine(ItemRepository itemRepository, ProcessingWatermarkRepository watermarkRepository,
+                                PartitionCoordinator partitionCoordinator,
+                                @Qualifier(AsyncConfig.DB_EXECUTOR) BulkheadExecutor dbExecutor,
+                                @Qualifier(AsyncConfig.CPU_EXECUTOR) BulkheadExecutor cpuExecutor, ProcessingProperties properties,
+                                CacheManager cacheManager, JdbcTemplate jdbcTemplate, List<ItemProcessingStage> stages,
+                                ItemChangeFeed changeFeed, ItemAggregates aggregates, MeterRegistry meterRegistry) {
+        this.itemRepository = itemRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.partitionCoordinator = partitionCoordinator;
+        this.dbExecutor = dbExecutor;
+        this.cpuExecutor = cpuExecutor;
+        this.properties = properties;
+        this.cacheManager = cacheManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.stages = stages;
+        this.changeFeed = changeFeed;
+        this.aggregates = aggregates;
+        this.meterRegistry = meterRegistry;
+
+        this.chunkSuccessTimer = chunkTimer("success", meterRegistry);
+        this.chunkFailureTimer = chunkTimer("failure", meterRegistry);
+        this.processedItems = itemCounter("processed", meterRegistry);
+        this.failedItems = itemCounter("failed", meterRegistry);
+        Gauge.builder("item.processing.concurrency.limit", concurrencyLimit, AtomicInteger::get)
+                .description("Current size of the adaptive window of chunks in flight")
+                .register(meterRegistry);
+    }
+
+    private static Timer chunkTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("item.processing.chunk")
+                .description("Duration of the bulk update of one chunk")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Counter itemCounter(String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("item.processing.items")
+                .description("Items handled by the processing jobs")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs on the calling thread until every chunk is updated, reporting the progress in the given job.
+     * A failing chunk is counted as failed and the run goes on with the next ones.
+     * When the job is cancelled, no new chunk is started and the run returns once the chunks in flight are done.
+     */
+    public void run(ProcessingJob job) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties.getParallelism(),
+                properties.getMinConcurrency(), properties.getMaxConcurrency(),
+                properties.getLatencyTarget().toNanos(), properties.getBackoffRatio());
+        Cache itemCache = cacheManager.getCache(CacheConfig.ITEMS_CACHE);
+        ChunkSink sink = stages.isEmpty()
+                ? new BulkUpdateSink(job, limiter, itemCache)
+                : pipeline(job, limiter, itemCache);
+        Instant nextWatermark;
+
+        try {
+            nextWatermark = properties.isPartitioned()
+                    ? runPartitioned(job, sink)
+                    : runLocal(job, sink);
+        } catch (RuntimeException ex) {
+            sink.awaitIdle();
+            sink.close();
+            job.fail(ex);
+            throw ex;
+        }
+
+        sink.awaitIdle();
+        sink.close();
+        job.finish();
+        if (nextWatermark != null && job.getState() == ProcessingJobState.COMPLETED && job.getFailed() == 0) {
+            saveWatermark(nextWatermark);
+        }
+
+        ProcessingJobStatus status = job.toStatus();
+        log.info("Processing job {} {}: {} processed, {} failed in {} chunks",
+                job.getId(), status.getState(), status.getProcessed(), status.getFailed(), status.getChunks());
+    }
+
+    /**
+     * Single instance run over the whole table (or the changed part of it). Returns the watermark to save if it succeeds.
+     */
+    private Instant runLocal(ProcessingJob job, ChunkSink sink) {
+        int chunkSize = properties.getChunkSize();
+        Instant runStart = Instant.now();
+        Instant since = job.getMode() == ProcessingMode.INCREMENTAL ? readWatermark() : null;
+        if (since != null) {
+            backfillLastModified();
+        }
+        Cursor cursor = new Cursor(since);
+        job.start(since == null ? itemRepository.count() : itemRepository.countByLastModifiedGreaterThanEqual(since), since);
+
+        while (!job.isCancelRequested()) {
+            List<Long> ids = nextChunk(cursor, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            sink.accept(ids);
+
+            if (ids.size() < chunkSize) {
+                break;
+            }
+        }
+
+        return runStart.minus(properties.getWatermarkOverlap());
+    }
+
+    /**
+     * Partitioned run: this instance joins (or creates) the current generation and processes the id ranges it claims,
+     * until every range of the generation is done. The total of the job grows with the chunks this instance reads.
+     * The watermark is only returned by an instance that sees the whole generation done without failures.
+     */
+    private Instant runPartitioned(ProcessingJob job, ChunkSink sink) {
+        Instant watermark = job.getMode() == ProcessingMode.INCREMENTAL ? readWatermark() : null;
+        if (watermark != null) {
+            backfillLastModified();
+        }
+        PartitionCoordinator.Generation generation = partitionCoordinator.openGeneration(watermark).orElse(null);
+        job.start(0, generation == null ? watermark : generation.getSince());
+        if (generation == null) {
+            return null;
+        }
+
+        while (!job.isCancelRequested()) {
+            ProcessingPartition partition = partitionCoordinator.claimNext(generation.getNumber()).orElse(null);
+            if (partition != null) {
+                processPartition(partition, job, sink);
+                continue;
+            }
+
+            if (partitionCoordinator.isFinished(generation.getNumber())) {
+                break;
+            }
+
+            // the remaining ranges are held by other instances, wait in case one of their leases expires
+            try {
+                Thread.sleep(properties.getPartitionPollInterval().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.cancel();
+            }
+        }
+
+        if (job.isCancelRequested() || partitionCoordinator.hasFailures(generation.getNumber())) {
+            return null;
+        }
+
+        return generation.getCreatedAt().minus(properties.getWatermarkOverlap());
+    }
+
+    /**
+     * Processes one claimed range chunk by chunk, renewing the lease before every chunk.
+     * If the lease was lost (this instance was too slow and another one took the range over), the range is left to the new owner.
+     * If the job is cancelled, the range is released so another instance can take it right away.
+     */
+    private void processPartition(ProcessingPartition partition, ProcessingJob job, ChunkSink sink) {
+        int chunkSize = properties.getChunkSize();
+        long processedBefore = job.getProcessed();
+        long failedBefore = job.getFailed();
+        Long lastId = partition.getRangeStart() - 1;
+        boolean exhausted = false;
+
+        while (!job.isCancelRequested()) {
+            List<Long> ids = partition.getSince() == null
+                    ? itemRepository.findIdsInRange(lastId, partition.getRangeEnd(), Limit.of(chunkSize))
+                    : itemRepository.findChangedIdsInRange(lastId, partition.getRangeEnd(), partition.getSince(), Limit.of(chunkSize));
+            if (ids.isEmpty()) {
+                exhausted = true;
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+
+            if (!partitionCoordinator.renew(partition)) {
+                log.warn("Lost the lease of partition [{}, {}), leaving it to its new owner",
+                        partition.getRangeStart(), partition.getRangeEnd());
+                sink.awaitIdle();
+                return;
+            }
+
+            job.addTotal(ids.size());
+            sink.accept(ids);
+
+            if (ids.size() < chunkSize) {
+                exhausted = true;
+                break;
+            }
+        }
+
+        sink.awaitIdle();
+        if (!exhausted) {
+            partitionCoordinator.release(partition);
+            return;
+        }
+
+        partitionCoordinator.complete(partition, job.getProcessed() - processedBefore, job.getFailed() - failedBefore);
+    }
+
+    /**
+     * Where the reading thread hands its chunks.
+     */
+    interface ChunkSink {
+        void accept(List<Long> ids);
+
+        /**
+         * Waits until every chunk accepted so far is written or failed.
+         */
+        void awaitIdle();
+
+        default void close() {
+        }
+    }
+
+    /**
+     * Hands every chunk to the db bulkhead once the adaptive window has room for it, where it is updated with one bulk UPDATE.
+     */
+    private final class BulkUpdateSink implements ChunkSink {
+        private final ProcessingJob job;
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final Cache itemCache;
+
+        private BulkUpdateSink(ProcessingJob job, AdaptiveConcurrencyLimiter limiter, Cache itemCache) {
+            this.job = job;
+            this.limiter = limiter;
+            this.itemCache = itemCache;
+        }
+
+        @Override
+        public void accept(List<Long> ids) {
+            limiter.acquire();
+            long start = System.nanoTime();
+            CompletableFuture<Integer> chunk;
+            try {
+                chunk = dbExecutor.submit(() -> updateChunk(ids, itemCache));
+            } catch (TaskRejectedException ex) {
+                chunk = CompletableFuture.failedFuture(ex);
+            }
+            chunk.whenComplete((updated, failure) -> chunkDone(ids, updated, failure, start, job, limiter));
+        }
+
+        @Override
+        public void awaitIdle() {
+            limiter.awaitIdle();
+        }
+    }
+
+    /**
+     * Pipeline over the ItemProcessingStage beans. The persist threads share the adaptive window, so the writes
+     * still follow the latency of the database; the other steps are only bounded by their threads and queues.
+     */
+    private StagedPipeline pipeline(ProcessingJob job, AdaptiveConcurrencyLimiter limiter, Cache itemCache) {
+        return new StagedPipeline(ids -> dbExecutor.submit(() -> loadChunk(ids)).join(), properties.getLoadParallelism(),
+                stages, cpuExecutor, properties.getStageParallelism(), (items, skipped) -> persistChunk(items, skipped, job, limiter, itemCache),
+                properties.getMaxConcurrency(), properties.getStageQueueCapacity(),
+                failed -> {
+                    job.chunkFailed(failed);
+                    failedItems.increment(failed);
+                }, meterRegistry);
+    }
+
+    /**
+     * Loads the items of a chunk from the primary, already marked as PROCESSED, so the stages can still choose another status.
+     * Items deleted since their id was read are simply missing, they are counted as processed when the batch is persisted.
+     */
+    private List<Item> loadChunk(List<Long> ids) {
+        List<Item> items = itemRepository.findAllById(ids);
+        items.forEach(item -> item.setStatus(PROCESSED_STATUS));
+        return items;
+    }
+
+    /**
+     * Writes the items that went through the stages with one JDBC batch on the db bulkhead.
+     * A row whose version changed since the item was loaded is not overwritten and counts as failed.
+     * The "skipped" ids of the batch (deleted, or left out by a stage) need no write and count as processed,
+     * so processed + failed still reaches the total of the run.
+     */
+    private void persistChunk(List<Item> items, int skipped, ProcessingJob job, AdaptiveConcurrencyLimiter limiter, Cache itemCache) {
+        limiter.acquire();
+        long start = System.nanoTime();
+        boolean success = false;
+        List<Long> ids = items.stream().map(Item::getId).toList();
+        try {
+            evict(itemCache, ids);
+            List<Object[]> rows = items.stream()
+                    .map(item -> new Object[]{item.getName(), item.getDescription(),
+                            item.getStatus(),
+                            item.getEmail(), item.getId(), item.getVersion()})
+                    .toList();
+            int[] counts = rows.isEmpty()
+                    ? new int[0]
+                    : dbExecutor.submit(() -> jdbcTemplate.batchUpdate(PERSIST_ITEM, rows)).join();
+            int conflicts = (int) Arrays.stream(counts).filter(count -> count == 0).count();
+            List<Item> persisted = IntStream.range(0, counts.length)
+                    .filter(index -> counts[index] > 0)
+                    .mapToObj(items::get)
+                    .toList();
+            persisted.forEach(aggregates::put);
+            changeFeed.publish(ItemChangeType.PROCESSED, persisted.stream().map(Item::getId).toList());
+
+            job.chunkProcessed(counts.length - conflicts + skipped);
+            processedItems.increment(counts.length - conflicts + skipped);
+            if (conflicts > 0) {
+                log.info("{} items were modified while they were processed, they are left for the next run", conflicts);
+                job.chunkFailed(conflicts);
+                failedItems.increment(conflicts);
+            }
+            evict(itemCache, ids);
+            success = true;
+        } finally {
+            long latency = System.nanoTime() - start;
+            (success ? chunkSuccessTimer : chunkFailureTimer).record(latency, TimeUnit.NANOSECONDS);
+            limiter.release(latency, success);
+            concurrencyLimit.set(limiter.getLimit());
+            job.setConcurrencyLimit(limiter.getLimit());
+        }
+    }
+
+    /**
+     * In a partitioned run the last instances to finish may all save the same watermark at the same time,
+     * losing that race is harmless.
+     */
+    private void saveWatermark(Instant watermark) {
+        try {
+            watermarkRepository.save(new ProcessingWatermark(WATERMARK_NAME, watermark));
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException ex) {
+            log.info("The processing watermark was saved by another node at the same time");
+        }
+    }
+
+    /**
+     * Rows without a modification time (inserted with plain SQL, or older than the column) would never be "changed since"
+     * the watermark, so an incremental run first stamps them with the current time and processes them like changed rows.
+     * The (last_modified, id) index finds them, so the statement costs nothing when there are none.
+     */
+    private void backfillLastModified() {
+        int rows = jdbcTemplate.update(BACKFILL_LAST_MODIFIED, Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MICROS)));
+        if (rows > 0) {
+            log.info("{} items had no modification time, they are processed as changed", rows);
+        }
+    }
+
+    private Instant readWatermark() {
+        return watermarkRepository.findById(WATERMARK_NAME)
+                .map(ProcessingWatermark::getWatermark)
+                .orElse(null);
+    }
+
+    /**
+     * Reads the next keyset page of ids and moves the cursor past it: by id for a full run,
+     * by (lastModified, id) for an incremental one.
+     */
+    private List<Long> nextChunk(Cursor cursor, int chunkSize) {
+        if (cursor.lastModified == null) {
+            List<Long> ids = itemRepository.findIdsAfter(cursor.lastId, Limit.of(chunkSize));
+            if (!ids.isEmpty()) {
+                cursor.lastId = ids.get(ids.size() - 1);
+            }
+            return ids;
+        }
+
+        List<ItemChange> changes = itemRepository.findChangesAfter(cursor.lastModified, cursor.lastId, Limit.of(chunkSize));
+        if (!changes.isEmpty()) {
+            ItemChange last = changes.get(changes.size() - 1);
+            cursor.lastModified = last.getLastModified();
+            cursor.lastId = last.getId();
+        }
+        return changes.stream().map(ItemChange::getId).toList();
+    }
+
+    /**
+     * Position of the reading thread in the table. lastModified stays null for a full run.
+     */
+    private static final class Cursor {
+        private Instant lastModified;
+        private Long lastId = Long.MIN_VALUE;
+
+        private Cursor(Instant since) {
+            this.lastModified = since;
+        }
+    }
+
+    /**
+     * Runs on the db bulkhead: one bulk UPDATE for the whole chunk. Returns how many rows it changed.
+     * When some ids were deleted since the chunk was read, the ids that are left are read again,
+     * so only the rows that were really changed are published.
+     */
+    private int updateChunk(List<Long> ids, Cache itemCache) {
+        evict(itemCache, ids);
+        int updated = itemRepository.updateStatusByIds(ids, PROCESSED_STATUS);
+        List<Long> processed = updated == ids.size() ? ids : itemRepository.findExistingIds(ids);
+        aggregates.setStatus(processed, PROCESSED_STATUS);
+        changeFeed.publish(ItemChangeType.PROCESSED, processed);
+        evict(itemCache, ids);
+
+        return updated;
+    }
+
+    /**
+     * Called before and after a chunk is written. A findById that read the old row before the write committed
+     * can cache it after the first eviction; the second one removes it again. An eviction waits for a load of the same
+     * item that is still running (@Cacheable(sync = true)), so that load cannot cache the old row after it either.
+     */
+    private static void evict(Cache itemCache, Collection<Long> ids) {
+        if (itemCache != null) {
+            ids.forEach(itemCache::evict);
+        }
+    }
+
+    /**
+     * Called once per chunk, when it was updated, failed, was rejected by the bulkhead or missed its deadline there.
+     * A chunk past its deadline may still be committed later, it is then only processed again by the next run.
+     */
+    private void chunkDone(List<Long> ids, Integer updated, Throwable failure, long start, ProcessingJob job,
+                           AdaptiveConcurrencyLimiter limiter) {
+        long latency = System.nanoTime() - start;
+        boolean success = failure == null;
+        try {
+            if (success) {
+                job.chunkProcessed(updated);
+                processedItems.increment(updated);
+            } else {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause()
+                        : failure;
+                log.error("Chunk of {} items after id {} failed", ids.size(), ids.get(0), cause);
+                job.chunkFailed(ids.size());
+                failedItems.increment(ids.size());
+            }
+        } finally {
+            (success ? chunkSuccessTimer : chunkFailureTimer).record(latency, TimeUnit.NANOSECONDS);
+            limiter.release(latency, success);
+            concurrencyLimit.set(limiter.getLimit());
+            job.setConcurrencyLimit(limiter.getLimit());
+        }
+    }
+}
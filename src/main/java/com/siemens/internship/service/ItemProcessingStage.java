@@ -0,0 +1,35 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.model.Item;
+
+import java.util.List;
+
+/**
+ * A user-defined step of the processing pipeline. Every Spring bean implementing it becomes a stage, in @Order order,
+ * between loading the items and writing them back (see StagedPipeline).
+ *
+ * A stage gets a micro-batch of items (one chunk) and returns the items to pass on; it can change their name,
+ * description, email or status. The items arrive with their status already set to PROCESSED, a stage can set another one.
+ * Items it leaves out are not written and are counted as processed. An exception fails the whole batch.
+ *
+ * The items are detached, so changing them writes nothing by itself, and a stage can be called by several threads at once.
+ */
+
+public interface ItemProcessingStage {
+    List<Item> apply(List<Item> items);
+
+    /**
+     * Used in the metrics and to override the parallelism with item.processing.stage-parallelism.<name>.
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * How many threads run this stage at the same time. A CPU-heavy stage can use more threads than the others,
+     * so it does not hold back the database stages.
+     */
+    default int getParallelism() {
+        return 1;
+    }
+}
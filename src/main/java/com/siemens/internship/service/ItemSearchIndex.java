@@ -0,0 +1,334 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.model.Item;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the name and the description of the items, used by GET /api/items/search.
+ *
+ * Every term points to a posting list: the ids of the items that contain it, kept sorted in a long[], next to an int[]
+ * with the weight of the term in each item (a term in the name counts three times as much as one in the description).
+ * A query returns the items that contain all of its terms: the shortest posting list is walked and the others are only
+ * searched from the last position found (galloping), so a query costs about as much as its rarest term, whatever the table size.
+ * The matches are ranked with a BM25-like score: rare terms weigh more than common ones, repeated terms saturate.
+ * A broad query stops early once its results already have the highest score an item can reach with these terms.
+ *
+ * The index is built from the table at startup (ItemWarmUpRunner) and kept up to date by the ItemService and the
+ * ItemBatchService. Processing runs only change the status, which is not indexed. The terms of every item are kept
+ * as well, so an update or a delete knows which posting lists to change without reading the old row.
+ * Queries share a read lock, changes take the write lock.
+ */
+
+@Slf4j
+@Component
+public class ItemSearchIndex {
+    static final int NAME_WEIGHT = 3;
+    static final int DESCRIPTION_WEIGHT = 1;
+    private static final double K1 = 1.2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, PostingList> postings = new HashMap<>();
+    private Map<Long, PostingList[]> documents = new HashMap<>();
+    private volatile boolean built;
+
+    /**
+     * One ranked search result.
+     */
+    @Value
+    public static class Match {
+        long id;
+
+        double score;
+    }
+
+    public ItemSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Reads the id, name and description of every item and replaces the index with a new one built from them.
+     * Changes made while the table is read can be missed, so it is only called when the table is not being written
+     * (at startup and after a snapshot restore).
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        Map<String, PostingList> newPostings = new HashMap<>();
+        Map<Long, PostingList[]> newDocuments = new HashMap<>();
+
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement("SELECT id, name, description FROM item ORDER BY id");
+            statement.setFetchSize(1000);
+            return statement;
+        }, (ResultSet rs) -> {
+            add(newPostings, newDocuments, rs.getLong("id"), rs.getString("name"), rs.getString("description"));
+        });
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            documents = newDocuments;
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index built: {} items, {} terms in {} ms",
+                newDocuments.size(), newPostings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Indexes a new item or replaces the terms of an existing one.
+     */
+    public void put(Item item) {
+        lock.writeLock().lock();
+        try {
+            remove(postings, documents, item.getId());
+            add(postings, documents, item.getId(), item.getName(), item.getDescription());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes the items once the current transaction commits, so a rolled back batch never shows up in the results.
+     */
+    public void putAfterCommit(Collection<Item> items) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            items.forEach(this::put);
+            return;
+        }
+        List<Item> committed = List.copyOf(items);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed.forEach(ItemSearchIndex.this::put);
+            }
+        });
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(postings, documents, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The ids of the "limit" best matching items, best first. Items must contain every term of the query.
+     */
+    public List<Match> search(String query, int limit) {
+        List<String> terms = List.copyOf(weights(query, null).keySet());
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[terms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(terms.get(i));
+                if (lists[i] == null) {
+                    return List.of();
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            return rank(lists, documents.size(), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Match> rank(PostingList[] lists, int documentCount, int limit) {
+        double[] idf = new double[lists.length];
+        double bound = 0;
+        for (int i = 0; i < lists.length; i++) {
+            idf[i] = Math.log(1 + (documentCount - lists[i].size + 0.5) / (lists[i].size + 0.5));
+            bound += idf[i] * saturate(lists[i].maxWeight);
+        }
+
+        PriorityQueue<Match> best = new PriorityQueue<>(limit,
+                Comparator.comparingDouble(Match::getScore).thenComparing(Match::getId, Comparator.reverseOrder()));
+        int[] positions = new int[lists.length];
+        PostingList shortest = lists[0];
+
+        candidates:
+        for (int p = 0; p < shortest.size; p++) {
+            // the later candidates have higher ids, so they lose ties: once the worst kept match reaches
+            // the best score any item can get, nothing after it can enter the results
+            if (best.size() == limit && best.peek().getScore() >= bound) {
+                break;
+            }
+            long id = shortest.ids[p];
+            double score = idf[0] * saturate(shortest.weights[p]);
+
+            for (int i = 1; i < lists.length; i++) {
+                positions[i] = lists[i].seek(positions[i], id);
+                if (positions[i] == lists[i].size) {
+                    break candidates;
+                }
+                if (lists[i].ids[positions[i]] != id) {
+                    continue candidates;
+                }
+                score += idf[i] * saturate(lists[i].weights[positions[i]]);
+            }
+
+            if (best.size() < limit) {
+                best.add(new Match(id, score));
+            } else if (score > best.peek().getScore()) {
+                best.poll();
+                best.add(new Match(id, score));
+            }
+        }
+
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(best.comparator().reversed());
+        return ranked;
+    }
+
+    private static double saturate(int weight) {
+        return weight * (K1 + 1) / (weight + K1);
+    }
+
+    private static void add(Map<String, PostingList> postings, Map<Long, PostingList[]> documents,
+                            long id, String name, String description) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights(name, weights).replaceAll((term, count) -> count * NAME_WEIGHT);
+        weights(description, weights);
+        if (weights.isEmpty()) {
+            return;
+        }
+
+        PostingList[] lists = new PostingList[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            PostingList list = postings.computeIfAbsent(entry.getKey(), PostingList::new);
+            list.add(id, entry.getValue());
+            lists[i++] = list;
+        }
+        documents.put(id, lists);
+    }
+
+    private static void remove(Map<String, PostingList> postings, Map<Long, PostingList[]> documents, Long id) {
+        PostingList[] lists = documents.remove(id);
+        if (lists == null) {
+            return;
+        }
+        for (PostingList list : lists) {
+            list.remove(id);
+            if (list.size == 0) {
+                postings.remove(list.term);
+            }
+        }
+    }
+
+    /**
+     * Splits the text into lower case terms (runs of letters and digits) and adds 1 to the count of each term.
+     */
+    static Map<String, Integer> weights(String text, Map<String, Integer> counts) {
+        Map<String, Integer> result = counts == null ? new LinkedHashMap<>() : counts;
+        if (text == null) {
+            return result;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean partOfTerm = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (partOfTerm && start < 0) {
+                start = i;
+            } else if (!partOfTerm && start >= 0) {
+                result.merge(lower.substring(start, i), 1, Integer::sum);
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Ids in ascending order with the weight of the term in each of them. New items have the highest ids,
+     * so they are appended at the end; updates of existing ids are inserted with a binary search.
+     */
+    static final class PostingList {
+        private final String term;
+        private long[] ids = new long[2];
+        private int[] weights = new int[2];
+        private int size;
+        // highest weight ever added, an upper bound of the weights still in the list
+        private int maxWeight;
+
+        PostingList(String term) {
+            this.term = term;
+        }
+
+        void add(long id, int weight) {
+            maxWeight = Math.max(maxWeight, weight);
+            int position = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                weights[position] = weight;
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            System.arraycopy(weights, position, weights, position + 1, size - position);
+            ids[position] = id;
+            weights[position] = weight;
+            size++;
+        }
+
+        void remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            System.arraycopy(weights, position + 1, weights, position, size - position - 1);
+            size--;
+        }
+
+        /**
+         * First position at or after "from" whose id is at least "id": doubles the step until it passes the id,
+         * then binary searches the last step.
+         */
+        int seek(int from, long id) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && ids[high] < id) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            int position = Arrays.binarySearch(ids, low, high, id);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+}
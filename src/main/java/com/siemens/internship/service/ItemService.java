@@ -1,18 +1,44 @@
 package com.siemens.internship.service;
 
+import com.siemens.internship.config.AsyncConfig;
+import com.siemens.internship.config.CacheConfig;
+import com.siemens.internship.config.exception.ChangeFeedExpiredException;
 import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.PreconditionFailedException;
+import com.siemens.internship.config.exception.TooManySubscribersException;
+import com.siemens.internship.config.exception.UnknownFieldException;
 import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemChangeType;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.model.ItemSearchHit;
+import com.siemens.internship.model.ItemStatistics;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.repository.ItemFieldRepository;
 import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.ItemSpecifications;
+import com.siemens.internship.repository.StatusCount;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -37,27 +63,206 @@ import java.util.stream.Stream;
 @AllArgsConstructor
 public class ItemService {
     private ItemRepository itemRepository;
-    private Executor executor;
+    private ItemProcessingEngine processingEngine;
+    private EntityManager entityManager;
+    private ItemWriteBuffer writeBuffer;
+    private ItemSearchIndex searchIndex;
+    private ItemChangeFeed changeFeed;
+    private ItemAggregates aggregates;
 
-    public List<Item> getAllItems() {
-        return itemRepository.findAll();
+    /**
+     * Returns one keyset page: at most "limit" items with an id greater than "after" (or from the start when it is null)
+     * that match the filter. The id of the last item is the cursor for the next page.
+     * The filters are evaluated by the database on indexed columns, so the cost follows the size of the page, not of the table.
+     *
+     * Like the other reads, it runs in a read-only transaction: the connection comes from the replica pool (see DataSourceConfig)
+     * and Hibernate loads the items read-only and never flushes, so it keeps no snapshots for dirty checking.
+     *
+     * Updates still waiting in the write-behind buffer replace the rows they belong to. With a filter, an update can also
+     * move an item into or out of the page, so the filter is applied again to the buffered items (see ItemWriteBuffer.overlay).
+     */
+    @Transactional(readOnly = true)
+    public List<Item> getAllItems(ItemFilter filter, Long after, int limit) {
+        if (filter.isEmpty()) {
+            return writeBuffer.overlay(
+                    itemRepository.findByIdGreaterThanOrderByIdAsc(after == null ? Long.MIN_VALUE : after, Limit.of(limit)));
+        }
+
+        int requested = limit + writeBuffer.size();
+        List<Item> rows = itemRepository.findBy(ItemSpecifications.matching(filter, after),
+                query -> query.sortBy(Sort.by("id")).limit(requested).all());
+        return writeBuffer.overlay(rows, requested, filter::matches, after, limit);
+    }
+
+    /**
+     * Same page as getAllItems, but only the requested fields are selected from the database and returned.
+     * The id and the version are always part of the result: the id is the cursor of the next page
+     * and the version is what the ETag of the page is built from.
+     *
+     * While updates are waiting in the write-behind buffer, the columns of the database can be older than them,
+     * so the page is then read like getAllItems and the fields are taken from the items.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getItemFields(ItemFilter filter, Long after, int limit, List<String> fields)
+            throws UnknownFieldException {
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        selected.add("version");
+        for (String field : fields) {
+            String name = field.trim();
+            if (!ItemFieldRepository.FIELDS.contains(name)) {
+                throw new UnknownFieldException("Items have no field named " + name);
+            }
+            selected.add(name);
+        }
+
+        if (writeBuffer.size() > 0) {
+            return getAllItems(filter, after, limit).stream()
+                    .map(item -> fieldsOf(item, selected))
+                    .toList();
+        }
+        return itemRepository.findFields(ItemSpecifications.matching(filter, after), List.copyOf(selected), limit);
+    }
+
+    private static Map<String, Object> fieldsOf(Item item, Set<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            row.put(field, switch (field) {
+                case "id" -> item.getId();
+                case "version" -> item.getVersion();
+                case "name" -> item.getName();
+                case "description" -> item.getDescription();
+                case "status" -> item.getStatus();
+                case "email" -> item.getEmail();
+                default -> throw new IllegalArgumentException("Items have no field named " + field);
+            });
+        }
+        return row;
+    }
+
+    /**
+     * Full-text search over the name and the description. The ranking is done by the in-memory ItemSearchIndex,
+     * only the best "limit" items are then read from the database, with one query.
+     */
+    @Transactional(readOnly = true)
+    public List<ItemSearchHit> search(String query, int limit) {
+        List<ItemSearchIndex.Match> matches = searchIndex.search(query, limit);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Item> items = writeBuffer.overlay(itemRepository.findAllById(
+                        matches.stream().map(ItemSearchIndex.Match::getId).toList())).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        return matches.stream()
+                .filter(match -> items.containsKey(match.getId()))
+                .map(match -> new ItemSearchHit(items.get(match.getId()), match.getScore()))
+                .toList();
+    }
+
+    /**
+     * Counts per status and top email domains, read from the in-memory ItemAggregates without touching the database.
+     * Until they are built (the first moments after startup), the counts come from one GROUP BY instead.
+     */
+    @Transactional(readOnly = true)
+    public ItemStatistics getStatistics() {
+        if (aggregates.isBuilt()) {
+            return aggregates.getStatistics();
+        }
+
+        Map<String, Long> byStatus = new TreeMap<>();
+        long total = 0;
+
+        for (StatusCount count : itemRepository.countByStatus()) {
+            byStatus.merge(Objects.toString(count.getStatus(), ItemStatistics.NO_STATUS), count.getCount(), Long::sum);
+            total += count.getCount();
+        }
+
+        return new ItemStatistics(total, byStatus, Map.of());
+    }
+
+    /**
+     * Hands every item to the consumer as soon as it is read from the database cursor.
+     * Each item is detached right after it was consumed, so the persistence context does not grow with the table.
+     * An item with an update in the write-behind buffer is handed over in its buffered state.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllItems(Consumer<Item> consumer) {
+        try (Stream<Item> items = itemRepository.streamAll()) {
+            items.forEach(item -> {
+                consumer.accept(writeBuffer.get(item.getId()).orElse(item));
+                entityManager.detach(item);
+            });
+        }
     }
 
+    /**
+     * Read-through cache: the item is loaded from the database only when it is not already in the "items" cache.
+     * Missing ids throw, so they are never cached.
+     * An update still waiting in the write-behind buffer is newer than the row, so it is returned instead.
+     *
+     * The load is synchronized with the cache entry (sync = true): an update or a delete committed while the old row
+     * is being loaded waits for the load to be cached, then replaces or evicts it, so the old row never outlives the write.
+     */
+    @Cacheable(cacheNames = CacheConfig.ITEMS_CACHE, key = "#id", sync = true)
+    @Transactional(readOnly = true)
     public Item findById(Long id) throws IdNotExistentException {
+        Optional<Item> buffered = writeBuffer.get(id);
+        if (buffered.isPresent()) {
+            return buffered.get();
+        }
+
         return itemRepository.findById(id)
                 .orElseThrow(
                         () -> new IdNotExistentException("There is no item with the id " + id)
                 );
     }
 
+    /**
+     * The id is always generated, a client cannot choose it (or overwrite an existing item through POST).
+     */
     public Optional<Item> createItem(Item item) {
+        item.setId(null);
         return Stream.of(item)
                 .map(itemRepository :: save)
+                .peek(searchIndex :: put)
+                .peek(aggregates :: put)
+                .peek(created -> changeFeed.publish(ItemChangeType.CREATED, created))
                 .findFirst();
     }
 
-    public Item updateItem(Long id, Item newItem) throws IdNotExistentException {
-        return itemRepository.findById(id)
+    /**
+     * The saved item replaces the cached one, so the next read does not go to the database and never sees the old values.
+     * The cache keeps the higher version when two updates put the same item in the wrong order (CacheConfig).
+     *
+     * When expectedVersion is given (from an If-Match header), the update is only done if the item still has that version.
+     * The version is checked again by the database when the item is saved, so a write that slips in between
+     * fails with an optimistic locking error instead of being overwritten.
+     *
+     * In write-behind mode the update only goes to the ItemWriteBuffer, which writes the latest state of every id in batches.
+     */
+    @CachePut(cacheNames = CacheConfig.ITEMS_CACHE, key = "#id")
+    public Item updateItem(Long id, Item newItem, Long expectedVersion) throws IdNotExistentException, PreconditionFailedException {
+        if (writeBuffer.isEnabled()) {
+            Item buffered = writeBuffer.update(id, newItem, expectedVersion, () -> itemRepository.findById(id));
+            searchIndex.put(buffered);
+            aggregates.put(buffered);
+            changeFeed.publish(ItemChangeType.UPDATED, buffered);
+            return buffered;
+        }
+
+        Item existing = itemRepository.findById(id)
+                .orElseThrow(
+                        () -> new IdNotExistentException("There is no item with the id " + id)
+                );
+
+        if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+            throw new PreconditionFailedException("The item with the id " + id + " was modified, its current version is "
+                    + existing.getVersion());
+        }
+
+        return Stream.of(existing)
                 .map(item -> {
                         item.setId(id);
                         item.setName(newItem.getName());
@@ -68,48 +273,50 @@ public class ItemService {
                         return item;
                 })
                 .map(itemRepository :: save)
-                .orElseThrow(
-                        () -> new IdNotExistentException("There is no item with the id " + id)
-                );
+                .peek(searchIndex :: put)
+                .peek(aggregates :: put)
+                .peek(updated -> changeFeed.publish(ItemChangeType.UPDATED, updated))
+                .findFirst()
+                .orElseThrow();
     }
 
 
+    /**
+     * Deleting an id that does not exist does nothing; the change feed only hears about rows that were really removed.
+     */
+    @CacheEvict(cacheNames = CacheConfig.ITEMS_CACHE, key = "#id")
     public void deleteById(Long id) {
-        itemRepository.deleteById(id);
+        writeBuffer.discard(id);
+        if (itemRepository.deleteItemById(id) == 0) {
+            return;
+        }
+        searchIndex.remove(id);
+        aggregates.remove(id);
+        changeFeed.publish(ItemChangeType.DELETED, List.of(id));
+    }
+
+    /**
+     * Subscribes the listener to the change feed: the retained events after "afterSequence" first (none when it is null),
+     * then every create, update, delete and processed chunk as it happens.
+     */
+    public ItemChangeFeed.Subscription subscribeToChanges(Long afterSequence, ItemChangeFeed.Listener listener)
+            throws ChangeFeedExpiredException, TooManySubscribersException {
+        return changeFeed.subscribe(afterSequence, listener);
     }
 
 
     /**
-     * Method grabs the itemProcessingExecutor bean that was defined in the AsyncConfig configuration file.
-     *
-     * As mentioned before, processedItems and processedCount are declared in order to be thread-safe.
+     * Method grabs the orchestrationExecutor bean that was defined in the AsyncConfig configuration file.
+     * The chunks go to the dbExecutor, so a run never waits for a thread of its own pool.
      *
-     * I used a functional programming approach in order to promote immutability and the asynchronous approach.
-     * All ids are fetched and for each of them I get the corresponding item and mark it as processed.
-     * allOf() returns a CompletableFuture that completes when all the items passed the processing
+     * The work itself is delegated to the ItemProcessingEngine: instead of one findById and one save per id
+     * (and one CompletableFuture per id), the table is walked in keyset chunks and every chunk is marked as processed
+     * with a single bulk UPDATE. The progress is reported in the job, and the future completes with its final status,
+     * so the memory used does not depend on the table size.
      */
-    @Async("itemProcessingExecutor")
-    public CompletableFuture<List<Item>> processItemsAsync() {
-        List<Item> processedItems = Collections.synchronizedList(new ArrayList<>());
-        AtomicInteger processedCount = new AtomicInteger(0);
-
-        return CompletableFuture
-                .allOf(
-                        itemRepository.findAllIds().stream()
-                                .map(id ->
-                                        CompletableFuture
-                                                .supplyAsync(() -> itemRepository.findById(id).orElse(null), executor)
-                                                .thenAccept(item -> {
-                                                    if (item == null) return;
-                                                    item.setStatus("PROCESSED");
-                                                    itemRepository.save(item);
-                                                    processedItems.add(item);
-                                                    processedCount.incrementAndGet();
-                                                })
-                                )
-                                .toArray(CompletableFuture[]::new)
-                )
-                .thenApply(v -> processedItems);
+    @Async(AsyncConfig.ORCHESTRATION_EXECUTOR)
+    public CompletableFuture<ProcessingJobStatus> processItemsAsync(ProcessingJob job) {
+        processingEngine.run(job);
+        return CompletableFuture.completedFuture(job.toStatus());
     }
 }
-
@@ -0,0 +1,304 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.CacheConfig;
+import com.siemens.internship.config.SnapshotProperties;
+import com.siemens.internship.model.SnapshotResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dumps all items to a compact binary file and loads them back, so an in-memory database can be refilled in seconds
+ * after a restart instead of being reseeded through the API.
+ *
+ * Format: the magic number "ITMS", the format version, then one record per item until the end of the file:
+ *     id (long), version (long), lastModified (epoch microseconds, Long.MIN_VALUE when missing),
+ *     name, description, status, email (each an int byte length, -1 for null, followed by the UTF-8 bytes)
+ *
+ * Both directions bypass JPA: the dump streams the rows with one JDBC query and the restore reads the memory-mapped file
+ * and sends the rows in JDBC batches, so no entity is created and nothing is kept in the persistence context.
+ */
+
+@Slf4j
+@Service
+public class ItemSnapshotService {
+    private static final int MAGIC = 0x49544D53;
+    private static final int FORMAT_VERSION = 1;
+    private static final int NULL_LENGTH = -1;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final String SELECT_ITEMS =
+            "SELECT id, version, last_modified, name, description, status, email FROM item ORDER BY id";
+    private static final String INSERT_ITEMS = "INSERT INTO item (id, version, last_modified, name, description, status, email) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 7;
+
+    /**
+     * Rows per INSERT statement. Inserting many rows per statement saves most of the per-statement parsing and
+     * round-trip cost, which dominates when the rows are as small as an item.
+     */
+    private static final int ROWS_PER_STATEMENT = 100;
+
+    /**
+     * The sequence is restarted this far past the highest restored id, so the next block of ids reserved
+     * by the pooled optimizer (50 ids) cannot overlap the restored ones.
+     */
+    private static final int SEQUENCE_GAP = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+    private final SnapshotProperties properties;
+    private final ItemWriteBuffer writeBuffer;
+    private final ItemSearchIndex searchIndex;
+    private final ItemAggregates aggregates;
+    private final TransactionTemplate transactionTemplate;
+
+    public ItemSnapshotService(JdbcTemplate jdbcTemplate, CacheManager cacheManager, SnapshotProperties properties,
+                               ItemWriteBuffer writeBuffer, ItemSearchIndex searchIndex, ItemAggregates aggregates,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheManager = cacheManager;
+        this.properties = properties;
+        this.writeBuffer = writeBuffer;
+        this.searchIndex = searchIndex;
+        this.aggregates = aggregates;
+    }
+
+    /**
+     * Writes every item to the snapshot file. The file is written next to the old one and moved over it at the end,
+     * so a failed snapshot never leaves a truncated file behind.
+     * Buffered write-behind updates are written first, so the snapshot contains them.
+     */
+    public synchronized SnapshotResult snapshot() throws IOException {
+        long start = System.nanoTime();
+        writeBuffer.flush();
+        Path target = properties.getPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+
+        long[] count = {0};
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_ITEMS);
+                statement.setFetchSize(properties.getBatchSize());
+                return statement;
+            }, (ResultSet rs) -> {
+                try {
+                    writeRecord(out, rs);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temporary);
+            throw e.getCause();
+        }
+
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        SnapshotResult result = new SnapshotResult(target.toString(), count[0], Files.size(target), elapsedMillis(start));
+        log.info("Snapshot of {} items written to {} ({} bytes) in {} ms",
+                result.getItems(), result.getPath(), result.getBytes(), result.getDurationMillis());
+        return result;
+    }
+
+    private static void writeRecord(DataOutputStream out, ResultSet rs) throws IOException, SQLException {
+        out.writeLong(rs.getLong("id"));
+        out.writeLong(rs.getLong("version"));
+        Timestamp lastModified = rs.getTimestamp("last_modified");
+        out.writeLong(lastModified == null ? NO_TIMESTAMP : toMicros(lastModified));
+        writeString(out, rs.getString("name"));
+        writeString(out, rs.getString("description"));
+        writeString(out, rs.getString("status"));
+        writeString(out, rs.getString("email"));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Loads the snapshot file into the item table, which must be empty (the restored items keep their ids).
+     * All rows are inserted in one transaction, so a truncated or corrupt file leaves the table as empty as it was.
+     * Afterwards the id sequence is moved past the restored ids, the item cache is cleared and the search index and the item aggregates rebuilt.
+     */
+    public synchronized SnapshotResult restore() throws IOException {
+        long start = System.nanoTime();
+        Path source = properties.getPath().toAbsolutePath();
+        long items = 0;
+        long size;
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + source + " is larger than 2 GB and cannot be mapped at once");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException(source + " is not an item snapshot");
+            }
+            int formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + formatVersion);
+            }
+
+            long[] restored;
+            try {
+                restored = transactionTemplate.execute(status -> insertAll(buffer));
+            } catch (BufferUnderflowException | NegativeArraySizeException e) {
+                throw new IOException(source + " is truncated or corrupt, nothing was restored", e);
+            }
+            items = restored[0];
+            long maxId = restored[1];
+
+            // DDL ends the transaction in H2, so the sequence is only moved once the rows are committed
+            if (items > 0) {
+                jdbcTemplate.execute("ALTER SEQUENCE item_seq RESTART WITH " + (maxId + SEQUENCE_GAP));
+            }
+        }
+
+        Cache cache = cacheManager.getCache(CacheConfig.ITEMS_CACHE);
+        if (cache != null) {
+            cache.clear();
+        }
+        searchIndex.rebuild();
+        aggregates.rebuild();
+
+        SnapshotResult result = new SnapshotResult(source.toString(), items, size, elapsedMillis(start));
+        log.info("Restored {} items from {} in {} ms", result.getItems(), result.getPath(), result.getDurationMillis());
+        return result;
+    }
+
+    /**
+     * Inserts every record of the file and returns how many there were and the highest id.
+     */
+    private long[] insertAll(MappedByteBuffer buffer) {
+        long items = 0;
+        long maxId = 0;
+        List<Object[]> batch = new ArrayList<>(properties.getBatchSize());
+        while (buffer.hasRemaining()) {
+            Object[] row = readRecord(buffer);
+            maxId = Math.max(maxId, (Long) row[0]);
+            batch.add(row);
+            if (batch.size() == properties.getBatchSize()) {
+                items += insert(batch);
+            }
+        }
+        items += insert(batch);
+        return new long[]{items, maxId};
+    }
+
+    private static Object[] readRecord(MappedByteBuffer buffer) {
+        long id = buffer.getLong();
+        long version = buffer.getLong();
+        long lastModified = buffer.getLong();
+        return new Object[]{
+                id,
+                version,
+                lastModified == NO_TIMESTAMP ? null : fromMicros(lastModified),
+                readString(buffer),
+                readString(buffer),
+                readString(buffer),
+                readString(buffer)
+        };
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends the rows as a JDBC batch of multi-row INSERTs; the last statement takes the rows that do not fill a whole one.
+     */
+    private int insert(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int full = batch.size() / ROWS_PER_STATEMENT * ROWS_PER_STATEMENT;
+        if (full > 0) {
+            List<Object[]> statements = new ArrayList<>(full / ROWS_PER_STATEMENT);
+            for (int from = 0; from < full; from += ROWS_PER_STATEMENT) {
+                statements.add(flatten(batch.subList(from, from + ROWS_PER_STATEMENT)));
+            }
+            jdbcTemplate.batchUpdate(insertStatement(ROWS_PER_STATEMENT), statements);
+        }
+        if (full < batch.size()) {
+            List<Object[]> rest = batch.subList(full, batch.size());
+            jdbcTemplate.update(insertStatement(rest.size()), flatten(rest));
+        }
+
+        int inserted = batch.size();
+        batch.clear();
+        return inserted;
+    }
+
+    private static String insertStatement(int rows) {
+        return INSERT_ITEMS + String.join(", ", Collections.nCopies(rows, ROW_PLACEHOLDERS));
+    }
+
+    private static Object[] flatten(List<Object[]> rows) {
+        Object[] values = new Object[rows.size() * COLUMNS];
+        for (int i = 0; i < rows.size(); i++) {
+            System.arraycopy(rows.get(i), 0, values, i * COLUMNS, COLUMNS);
+        }
+        return values;
+    }
+
+    public boolean hasItems() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM item)", Boolean.class));
+    }
+
+    private static long toMicros(Timestamp timestamp) {
+        return Math.floorDiv(timestamp.getTime(), 1000) * 1_000_000 + timestamp.getNanos() / 1000;
+    }
+
+    private static Timestamp fromMicros(long micros) {
+        Timestamp timestamp = new Timestamp(Math.floorDiv(micros, 1_000_000) * 1000);
+        timestamp.setNanos((int) Math.floorMod(micros, 1_000_000) * 1000);
+        return timestamp;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
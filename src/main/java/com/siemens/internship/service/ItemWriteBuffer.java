@@ -0,0 +1,342 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.CacheConfig;
+import com.siemens.internship.config.WriteBehindProperties;
+import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.PreconditionFailedException;
+import com.siemens.internship.model.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind buffer of item updates, used when "item.write-behind.enabled" is set.
+ *
+ * An update only replaces the pending state of its id, so a hot id updated a hundred times between two flushes
+ * costs one row in the next JDBC batch instead of a hundred findById + save round trips. The buffer is flushed
+ * every flush interval, when it holds max pending items, and when the application shuts down.
+ *
+ * Every update still gets the next version, so ETags and If-Match work as before. The row is written with
+ * "WHERE version = <version it had when it was first buffered>": if something else changed it in the meantime
+ * (a processing run, an instance without the buffer), the buffered values are written anyway, like a synchronous
+ * PUT would have done, but with the version the database computes, and the cached copy is evicted so the next read
+ * returns what was really written. An item deleted in the meantime stays deleted.
+ *
+ * An entry leaves the buffer only after its row was written, so findById keeps seeing it until then.
+ */
+
+@Slf4j
+@Component
+public class ItemWriteBuffer {
+    private static final String UPDATE_IF_UNCHANGED = "UPDATE item SET name = ?, description = ?, status = ?, email = ?, " +
+            "last_modified = ?, version = ? WHERE id = ? AND version = ?";
+    private static final String UPDATE_ANYWAY = "UPDATE item SET name = ?, description = ?, status = ?, email = ?, " +
+            "last_modified = ?, version = version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+    private final WriteBehindProperties properties;
+    private final Map<Long, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private final Counter bufferedUpdates;
+    private final Counter writtenRows;
+    private final Counter conflicts;
+
+    /**
+     * The state an item will be written with and the version the row had in the database when the item was first buffered
+     * (null when that is not known anymore and the row is written without checking it).
+     */
+    @Value
+    static class PendingWrite {
+        Item item;
+
+        Long baseVersion;
+    }
+
+    public ItemWriteBuffer(JdbcTemplate jdbcTemplate, CacheManager cacheManager, WriteBehindProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheManager = cacheManager;
+        this.properties = properties;
+        this.bufferedUpdates = Counter.builder("item.write_behind.updates")
+                .description("Item updates accepted by the write-behind buffer")
+                .register(meterRegistry);
+        this.writtenRows = Counter.builder("item.write_behind.rows")
+                .description("Rows written to the database by the write-behind buffer")
+                .register(meterRegistry);
+        this.conflicts = Counter.builder("item.write_behind.conflicts")
+                .description("Buffered items whose row was changed by someone else before they were written")
+                .register(meterRegistry);
+        Gauge.builder("item.write_behind.pending", pending, Map::size)
+                .description("Items waiting in the write-behind buffer")
+                .register(meterRegistry);
+
+        if (properties.isEnabled()) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "item-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties.getFlushInterval().toMillis();
+            flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * The buffered state of the item, if it has an update that was not written yet.
+     */
+    public Optional<Item> get(Long id) {
+        PendingWrite write = pending.get(id);
+        return write == null ? Optional.empty() : Optional.of(write.getItem());
+    }
+
+    /**
+     * Replaces the items of a page read from the database with their buffered state.
+     */
+    public List<Item> overlay(List<Item> items) {
+        if (pending.isEmpty()) {
+            return items;
+        }
+        return items.stream()
+                .map(item -> get(item.getId()).orElse(item))
+                .toList();
+    }
+
+    /**
+     * Number of items waiting to be written.
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Same as overlay, for a page of a filtered query. The buffered state of an item can match the filter while its row
+     * does not, or the other way round: the rows that do not match anymore are dropped and the buffered items that match
+     * now are added, as far as the page reaches. "requested" is how many rows were read; reading size() more rows
+     * than the limit keeps the page full when some are dropped.
+     */
+    public List<Item> overlay(List<Item> rows, int requested, Predicate<Item> filter, Long after, int limit) {
+        if (pending.isEmpty()) {
+            return rows.size() > limit ? rows.subList(0, limit) : rows;
+        }
+
+        Map<Long, Item> page = new TreeMap<>();
+        for (Item row : rows) {
+            Item current = get(row.getId()).orElse(row);
+            if (filter.test(current)) {
+                page.put(current.getId(), current);
+            }
+        }
+
+        // a buffered item past the last row read could be preceded by rows that were not read
+        long from = after == null ? Long.MIN_VALUE : after;
+        long to = rows.size() < requested ? Long.MAX_VALUE : rows.get(rows.size() - 1).getId();
+        for (PendingWrite write : pending.values()) {
+            Item item = write.getItem();
+            if (item.getId() > from && item.getId() <= to && filter.test(item)) {
+                page.put(item.getId(), item);
+            }
+        }
+
+        return page.values().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Applies the new values on top of the latest state of the item (buffered, cached or loaded by the loader)
+     * and buffers the result with the next version.
+     * The pending entry is replaced with compare-and-set, so two concurrent updates of the same id both end up
+     * with their own version and the later one wins, as with the synchronous update.
+     */
+    public Item update(Long id, Item newItem, Long expectedVersion, Supplier<Optional<Item>> loader)
+            throws IdNotExistentException, PreconditionFailedException {
+        while (true) {
+            PendingWrite previous = pending.get(id);
+            Item current = previous != null ? previous.getItem() : load(id, loader);
+
+            if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                throw new PreconditionFailedException("The item with the id " + id + " was modified, its current version is "
+                        + current.getVersion());
+            }
+
+            Item updated = new Item(id, newItem.getName(), newItem.getDescription(), newItem.getStatus(), newItem.getEmail());
+            updated.setVersion(current.getVersion() == null ? 0L : current.getVersion() + 1);
+            updated.setLastModified(Instant.now().truncatedTo(ChronoUnit.MICROS));
+
+            PendingWrite next = new PendingWrite(updated, previous != null ? previous.getBaseVersion() : current.getVersion());
+            boolean stored = previous == null
+                    ? pending.putIfAbsent(id, next) == null
+                    : pending.replace(id, previous, next);
+            if (stored) {
+                bufferedUpdates.increment();
+                afterUpdate();
+                return updated;
+            }
+        }
+    }
+
+    private Item load(Long id, Supplier<Optional<Item>> loader) throws IdNotExistentException {
+        Cache cache = cacheManager.getCache(CacheConfig.ITEMS_CACHE);
+        Item cached = cache == null ? null : cache.get(id, Item.class);
+        if (cached != null) {
+            return cached;
+        }
+        return loader.get()
+                .orElseThrow(
+                        () -> new IdNotExistentException("There is no item with the id " + id)
+                );
+    }
+
+    private void afterUpdate() {
+        int size = pending.size();
+        if (size >= 2 * properties.getMaxPending()) {
+            flush();
+        } else if (size >= properties.getMaxPending() && flusher != null && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Drops the buffered update of a deleted item.
+     */
+    public void discard(Long id) {
+        pending.remove(id);
+    }
+
+    /**
+     * Writes everything that is buffered right now, returns the number of rows written.
+     * Updates that arrive during the flush stay in the buffer for the next one.
+     */
+    public synchronized int flush() {
+        flushRequested.set(false);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<PendingWrite> writes = new ArrayList<>(pending.values());
+        int written = 0;
+        for (int from = 0; from < writes.size(); from += properties.getBatchSize()) {
+            written += writeBatch(writes.subList(from, Math.min(from + properties.getBatchSize(), writes.size())));
+        }
+        writtenRows.increment(written);
+        return written;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Could not write the buffered item updates, they are kept for the next flush", e);
+        }
+    }
+
+    private int writeBatch(List<PendingWrite> batch) {
+        List<PendingWrite> checked = batch.stream().filter(write -> write.getBaseVersion() != null).toList();
+        List<PendingWrite> forced = new ArrayList<>(batch.stream().filter(write -> write.getBaseVersion() == null).toList());
+        int written = 0;
+
+        if (!checked.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_IF_UNCHANGED, checked.stream().map(ItemWriteBuffer::checkedArguments).toList());
+            for (int i = 0; i < checked.size(); i++) {
+                if (counts[i] == 0) {
+                    forced.add(checked.get(i));
+                } else {
+                    settle(checked.get(i), checked.get(i).getItem().getVersion());
+                    written++;
+                }
+            }
+        }
+
+        if (!forced.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_ANYWAY, forced.stream().map(ItemWriteBuffer::forcedArguments).toList());
+            for (int i = 0; i < forced.size(); i++) {
+                Long id = forced.get(i).getItem().getId();
+                conflicts.increment();
+                if (counts[i] == 0) {
+                    log.warn("The item with the id {} was deleted before its buffered update was written", id);
+                    pending.remove(id);
+                } else {
+                    settle(forced.get(i), null);
+                    written++;
+                }
+                evict(id);
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Removes a written entry, unless a newer update replaced it during the flush: that one now builds on the written row.
+     */
+    private void settle(PendingWrite write, Long writtenVersion) {
+        pending.computeIfPresent(write.getItem().getId(),
+                (id, current) -> current == write ? null : new PendingWrite(current.getItem(), writtenVersion));
+    }
+
+    private void evict(Long id) {
+        Cache cache = cacheManager.getCache(CacheConfig.ITEMS_CACHE);
+        if (cache != null) {
+            cache.evict(id);
+        }
+    }
+
+    private static Object[] checkedArguments(PendingWrite write) {
+        Item item = write.getItem();
+        return new Object[]{item.getName(), item.getDescription(), item.getStatus(), item.getEmail(),
+                Timestamp.from(item.getLastModified()), item.getVersion(), item.getId(), write.getBaseVersion()};
+    }
+
+    private static Object[] forcedArguments(PendingWrite write) {
+        Item item = write.getItem();
+        return new Object[]{item.getName(), item.getDescription(), item.getStatus(), item.getEmail(),
+                Timestamp.from(item.getLastModified()), item.getId()};
+    }
+
+    /**
+     * Called when the application shuts down: the web server has already stopped taking requests,
+     * so after the last flush nothing is left in memory.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(properties.getFlushInterval().toMillis() + 5_000, TimeUnit.MILLISECONDS);
+        }
+        int written = flush();
+        if (written > 0) {
+            log.info("Wrote {} buffered item updates on shutdown", written);
+        }
+    }
+}
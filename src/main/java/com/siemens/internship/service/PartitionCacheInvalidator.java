@@ -0,0 +1,112 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.CacheConfig;
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.ProcessingPartition;
+import com.siemens.internship.repository.ProcessingPartitionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In a partitioned run the other instances bulk-update their ranges and only evict their own item cache,
+ * so this instance would keep serving the old status (and ETag) of those items until the entries expire.
+ *
+ * The processing_partition table already tells which ranges are finished: every "partition-poll-interval" the ranges
+ * that other instances completed since the last poll are read, and the cached items inside them are evicted.
+ * The completion times come from the clocks of the other instances, so every poll looks one lease duration further back
+ * (the lease duration has to cover the clock difference anyway); the ranges already handled are remembered until they
+ * fall out of that window, so they are evicted only once.
+ *
+ * Until its range is completed, an item updated by another instance can still be served with its old status here,
+ * for at most the time one range takes plus one poll interval.
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "item.processing", name = "partitioned", havingValue = "true")
+public class PartitionCacheInvalidator {
+    private final ProcessingPartitionRepository partitionRepository;
+    private final CacheManager cacheManager;
+    private final ProcessingProperties properties;
+    private final ScheduledExecutorService poller;
+    private final Map<Long, Instant> handled = new HashMap<>();
+    private Instant lastPoll = Instant.now();
+
+    public PartitionCacheInvalidator(ProcessingPartitionRepository partitionRepository, CacheManager cacheManager,
+                                     ProcessingProperties properties) {
+        this.partitionRepository = partitionRepository;
+        this.cacheManager = cacheManager;
+        this.properties = properties;
+
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-cache-invalidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getPartitionPollInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::pollQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Evicts the cached items of the ranges completed by other instances since the last poll.
+     * Returns how many ranges were evicted.
+     */
+    public synchronized int poll() {
+        Instant now = Instant.now();
+        Instant since = lastPoll.minus(properties.getLeaseDuration());
+        List<ProcessingPartition> completed = partitionRepository.findCompletedByOthersSince(since, properties.getNodeId());
+        lastPoll = now;
+        handled.values().removeIf(completedAt -> completedAt.isBefore(since));
+
+        int evicted = 0;
+        for (ProcessingPartition partition : completed) {
+            if (handled.putIfAbsent(partition.getId(), partition.getCompletedAt()) == null) {
+                evict(partition.getRangeStart(), partition.getRangeEnd());
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted the cached items of {} ranges processed by other nodes", evicted);
+        }
+        return evicted;
+    }
+
+    /**
+     * Removes the cached items with an id in [start, end). The cache is bounded, so walking its keys is cheaper
+     * than evicting every id of a range that can span far more items than are cached.
+     */
+    private void evict(long start, long end) {
+        Cache cache = cacheManager.getCache(CacheConfig.ITEMS_CACHE);
+        if (cache instanceof CaffeineCache caffeine) {
+            caffeine.getNativeCache().asMap().keySet().removeIf(key -> key instanceof Long id && id >= start && id < end);
+        } else if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException ex) {
+            log.error("Could not read the ranges completed by other nodes", ex);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        poller.shutdownNow();
+    }
+}
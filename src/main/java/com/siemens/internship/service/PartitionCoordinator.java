@@ -0,0 +1,150 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.PartitionState;
+import com.siemens.internship.model.ProcessingPartition;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.ProcessingPartitionRepository;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Coordinates the instances of a partitioned processing run through the processing_partition table.
+ *
+ * A run is a generation of id ranges. The first instance that starts processing creates the generation
+ * (the ranges split [min id, max id] evenly), the ones that start while it is not finished join it.
+ * Every instance then claims free ranges one at a time, so the work spreads over as many instances as there are,
+ * and a range whose owner stopped renewing its lease (because the instance died) is claimed again by another one.
+ *
+ * Leases are compared with the clock of each instance, so the clocks must agree to well within the lease duration.
+ */
+
+@Slf4j
+@Component
+public class PartitionCoordinator {
+    private static final int CLAIM_CANDIDATES = 16;
+    private static final int OPEN_ATTEMPTS = 3;
+
+    private final ProcessingPartitionRepository partitionRepository;
+    private final ItemRepository itemRepository;
+    private final ProcessingProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public PartitionCoordinator(ProcessingPartitionRepository partitionRepository, ItemRepository itemRepository,
+                                ProcessingProperties properties, PlatformTransactionManager transactionManager) {
+        this.partitionRepository = partitionRepository;
+        this.itemRepository = itemRepository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * The generation an instance works on: its number, the watermark it processes from and when it was created.
+     */
+    @Value
+    public static class Generation {
+        long number;
+
+        Instant since;
+
+        Instant createdAt;
+    }
+
+    /**
+     * Joins the unfinished generation if there is one, otherwise creates a new one starting from "since".
+     * Returns empty when there are no items at all.
+     */
+    public Optional<Generation> openGeneration(Instant since) {
+        for (int attempt = 0; attempt < OPEN_ATTEMPTS; attempt++) {
+            Long latest = partitionRepository.findLatestGeneration();
+            if (latest != null && partitionRepository.countByGenerationAndStateNot(latest, PartitionState.DONE) > 0) {
+                return partitionRepository.findFirstByGeneration(latest)
+                        .map(partition -> new Generation(latest, partition.getSince(), partition.getCreatedAt()));
+            }
+
+            long next = latest == null ? 1 : latest + 1;
+            Instant createdAt = Instant.now();
+            List<ProcessingPartition> partitions = split(next, since, createdAt);
+            if (partitions.isEmpty()) {
+                return Optional.empty();
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> partitionRepository.saveAll(partitions));
+                log.info("Node {} created processing generation {} with {} partitions",
+                        properties.getNodeId(), next, partitions.size());
+                return Optional.of(new Generation(next, since, createdAt));
+            } catch (DataIntegrityViolationException ex) {
+                log.info("Processing generation {} was created by another node, joining it", next);
+            }
+        }
+
+        throw new IllegalStateException("Could not open a processing generation after " + OPEN_ATTEMPTS + " attempts");
+    }
+
+    private List<ProcessingPartition> split(long generation, Instant since, Instant createdAt) {
+        Long min = itemRepository.findMinId();
+        Long max = itemRepository.findMaxId();
+        if (min == null || max == null) {
+            return List.of();
+        }
+
+        long size = Math.max(1, (max - min + properties.getPartitions()) / properties.getPartitions());
+        List<ProcessingPartition> partitions = new ArrayList<>();
+        for (long start = min; start <= max; start += size) {
+            partitions.add(new ProcessingPartition(generation, start, Math.min(start + size, max + 1), since, createdAt));
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Claims one free range of the generation. The candidates are tried in random order,
+     * so instances that claim at the same time mostly try different rows.
+     */
+    public Optional<ProcessingPartition> claimNext(long generation) {
+        Instant now = Instant.now();
+        List<Long> candidates = new ArrayList<>(partitionRepository.findClaimable(generation, now, Limit.of(CLAIM_CANDIDATES)));
+        Collections.shuffle(candidates);
+
+        for (Long id : candidates) {
+            if (partitionRepository.claim(id, properties.getNodeId(), now.plus(properties.getLeaseDuration()), now) == 1) {
+                return partitionRepository.findById(id);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    public boolean renew(ProcessingPartition partition) {
+        return partitionRepository.renew(partition.getId(), properties.getNodeId(),
+                Instant.now().plus(properties.getLeaseDuration())) == 1;
+    }
+
+    public boolean complete(ProcessingPartition partition, long processed, long failed) {
+        return partitionRepository.complete(partition.getId(), properties.getNodeId(), processed, failed, Instant.now()) == 1;
+    }
+
+    public void release(ProcessingPartition partition) {
+        partitionRepository.release(partition.getId(), properties.getNodeId());
+    }
+
+    public boolean isFinished(long generation) {
+        return partitionRepository.countByGenerationAndStateNot(generation, PartitionState.DONE) == 0;
+    }
+
+    public boolean hasFailures(long generation) {
+        return partitionRepository.sumFailedByGeneration(generation) > 0;
+    }
+}
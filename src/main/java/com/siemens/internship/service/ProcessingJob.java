@@ -0,0 +1,128 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.model.ProcessingJobState;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.model.ProcessingMode;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one processing run. The engine updates the counters from the executor threads,
+ * the status endpoint reads them at any time, so every field is atomic or volatile.
+ */
+
+public class ProcessingJob {
+    @Getter
+    private final String id;
+
+    @Getter
+    private final ProcessingMode mode;
+
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+
+    private volatile Instant since;
+    private volatile int concurrencyLimit;
+    private volatile ProcessingJobState state = ProcessingJobState.RUNNING;
+    private volatile boolean cancelRequested;
+    private volatile boolean started;
+    private volatile Instant startedAt = Instant.now();
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public ProcessingJob(String id) {
+        this(id, ProcessingMode.FULL);
+    }
+
+    public ProcessingJob(String id, ProcessingMode mode) {
+        this.id = id;
+        this.mode = mode;
+    }
+
+    /**
+     * "since" is the watermark an incremental run starts from, null when every item is processed.
+     */
+    public void start(long totalItems, Instant since) {
+        startedAt = Instant.now();
+        this.since = since;
+        total.set(totalItems);
+        started = true;
+    }
+
+    /**
+     * False while the run waits for a thread, before the engine read what it has to process.
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Used by partitioned runs, where the total is only known as the ranges of this instance are read.
+     */
+    public void addTotal(long items) {
+        total.addAndGet(items);
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public void chunkProcessed(long items) {
+        chunks.incrementAndGet();
+        processed.addAndGet(items);
+    }
+
+    public void chunkFailed(long items) {
+        chunks.incrementAndGet();
+        failed.addAndGet(items);
+    }
+
+    public void setConcurrencyLimit(int concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public void finish() {
+        finishedAt = Instant.now();
+        state = cancelRequested ? ProcessingJobState.CANCELLED : ProcessingJobState.COMPLETED;
+    }
+
+    public void fail(Throwable cause) {
+        finishedAt = Instant.now();
+        error = cause.getMessage();
+        state = ProcessingJobState.FAILED;
+    }
+
+    public ProcessingJobState getState() {
+        return state;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public ProcessingJobStatus toStatus() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        double seconds = Duration.between(startedAt, end).toNanos() / 1e9;
+        double itemsPerSecond = seconds > 0 ? processed.get() / seconds : 0;
+
+        return new ProcessingJobStatus(id, mode, since, state, total.get(), processed.get(), failed.get(), chunks.get(),
+                concurrencyLimit, itemsPerSecond, startedAt, finishedAt, error);
+    }
+}
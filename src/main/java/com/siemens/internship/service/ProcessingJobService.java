@@ -0,0 +1,103 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.JobAlreadyRunningException;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.model.ProcessingMode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps track of the processing jobs. A job is started in the background and its id is returned right away,
+ * the caller then polls its status or cancels it, instead of holding an HTTP request open for the whole run.
+ *
+ * Only one job can run at a time (two runs would update the same rows). Finished jobs are kept so their summary can
+ * still be read, but only the most recent "retained-jobs" of them.
+ *
+ * A job that is still running when the deadline of the orchestration bulkhead passes is cancelled, so it stops after
+ * the chunks in flight; one that never got a thread before it is failed, so the next job can start.
+ */
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProcessingJobService {
+    private final ItemService itemService;
+    private final ProcessingProperties properties;
+
+    private final Map<String, ProcessingJob> jobs = new ConcurrentHashMap<>();
+    private ProcessingJob activeJob;
+
+    public synchronized ProcessingJobStatus start(ProcessingMode mode) throws JobAlreadyRunningException {
+        if (activeJob != null && !activeJob.getState().isFinished()) {
+            throw new JobAlreadyRunningException("Processing job " + activeJob.getId() + " is still running");
+        }
+
+        ProcessingJob job = new ProcessingJob(UUID.randomUUID().toString(), mode);
+        removeOldJobs();
+        jobs.put(job.getId(), job);
+        activeJob = job;
+
+        try {
+            itemService.processItemsAsync(job).whenComplete((status, failure) -> {
+                if (failure instanceof TimeoutException) {
+                    log.warn("Processing job {} exceeded its deadline, cancelling it", job.getId());
+                    job.cancel();
+                    if (!job.isStarted()) {
+                        job.fail(failure);
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            job.fail(ex);
+            throw ex;
+        }
+
+        log.info("Started {} processing job {}", mode, job.getId());
+        return job.toStatus();
+    }
+
+    public ProcessingJobStatus getStatus(String jobId) throws IdNotExistentException {
+        return findJob(jobId).toStatus();
+    }
+
+    public ProcessingJobStatus cancel(String jobId) throws IdNotExistentException {
+        ProcessingJob job = findJob(jobId);
+        if (!job.getState().isFinished()) {
+            job.cancel();
+            log.info("Cancel requested for processing job {}", jobId);
+        }
+
+        return job.toStatus();
+    }
+
+    private ProcessingJob findJob(String jobId) throws IdNotExistentException {
+        ProcessingJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new IdNotExistentException("There is no processing job with the id " + jobId);
+        }
+
+        return job;
+    }
+
+    private void removeOldJobs() {
+        Iterator<ProcessingJob> finished = jobs.values().stream()
+                .filter(job -> job.getState().isFinished())
+                .sorted(Comparator.comparing(ProcessingJob::getStartedAt))
+                .iterator();
+
+        int toRemove = jobs.size() - properties.getRetainedJobs() + 1;
+        while (toRemove-- > 0 && finished.hasNext()) {
+            jobs.remove(finished.next().getId());
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.BulkheadExecutor;
+import com.siemens.internship.model.Item;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Processing pipeline of one run: load -> the ItemProcessingStage beans -> persist.
+ *
+ * Every step has its own threads and reads micro-batches (the chunks of the reading thread) from a bounded queue,
+ * so while one batch is being enriched on the CPU, the next one is already loaded and the previous one written.
+ * When a queue is full, the step before it waits, which in the end slows down the reading thread instead of
+ * filling the memory. A slow step can be given more threads without touching the others.
+ *
+ * The workers live as long as the run, so they get their own threads instead of a bulkhead, where
+ * long-running tasks could wait in its queue behind each other. The work of a user stage itself is handed to
+ * the cpu bulkhead, so all the runs together use at most its threads and every batch gets its deadline.
+ */
+
+@Slf4j
+final class StagedPipeline implements ItemProcessingEngine.ChunkSink {
+    private static final Batch END = new Batch(List.of(), List.of());
+
+    private final List<Step> steps = new ArrayList<>();
+    private final ExecutorService threads;
+    private final Consumer<Integer> onFailure;
+    private int inFlight;
+
+    /**
+     * One micro-batch: the ids read by the reading thread and, once loaded, their items.
+     */
+    private static final class Batch {
+        private final List<Long> ids;
+        private final List<Item> items;
+
+        private Batch(List<Long> ids, List<Item> items) {
+            this.ids = ids;
+            this.items = items;
+        }
+    }
+
+    /**
+     * A named function over batches with its queue and threads. It returns null when the batch leaves the pipeline.
+     */
+    private final class Step {
+        private final String name;
+        private final int parallelism;
+        private final Function<Batch, Batch> function;
+        private final BlockingQueue<Batch> queue;
+        private final CountDownLatch stopped;
+        private final Timer timer;
+        private Step next;
+
+        private Step(String name, int parallelism, int queueCapacity, Function<Batch, Batch> function, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.parallelism = Math.max(1, parallelism);
+            this.function = function;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.stopped = new CountDownLatch(this.parallelism);
+            this.timer = Timer.builder("item.processing.stage")
+                    .description("Time a pipeline stage spends on one micro-batch")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+        }
+
+        private void work() {
+            try {
+                while (true) {
+                    Batch batch = queue.take();
+                    if (batch == END) {
+                        return;
+                    }
+                    handle(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped.countDown();
+            }
+        }
+
+        private void handle(Batch batch) throws InterruptedException {
+            Batch result;
+            try {
+                result = timer.recordCallable(() -> function.apply(batch));
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("Stage {} failed a batch of {} items after id {}", name, batch.ids.size(), batch.ids.get(0), e);
+                onFailure.accept(batch.ids.size());
+                done();
+                return;
+            }
+
+            if (result == null || next == null) {
+                done();
+            } else {
+                next.queue.put(result);
+            }
+        }
+    }
+
+    /**
+     * @param load        reads the items of the ids of a batch
+     * @param stages      the user stages, in order
+     * @param cpuExecutor runs the stages, the step thread waits for every batch
+     * @param persist     writes the items of a batch and counts them in the job, with the number of ids of the batch
+     *                    that have no item anymore (deleted before the load or left out by a stage)
+     * @param onFailure   counts the items of a batch that failed in a stage
+     */
+    StagedPipeline(Function<List<Long>, List<Item>> load, int loadParallelism, List<ItemProcessingStage> stages,
+                   BulkheadExecutor cpuExecutor, Map<String, Integer> parallelismOverrides, BiConsumer<List<Item>, Integer> persist,
+                   int persistParallelism,
+                   int queueCapacity, Consumer<Integer> onFailure, MeterRegistry meterRegistry) {
+        this.onFailure = onFailure;
+
+        steps.add(new Step("load", loadParallelism, queueCapacity,
+                batch -> new Batch(batch.ids, load.apply(batch.ids)), meterRegistry));
+        for (ItemProcessingStage stage : stages) {
+            steps.add(new Step(stage.getName(), parallelismOverrides.getOrDefault(stage.getName(), stage.getParallelism()),
+                    queueCapacity, batch -> new Batch(batch.ids, cpuExecutor.submit(() -> stage.apply(batch.items)).join()),
+                    meterRegistry));
+        }
+        steps.add(new Step("persist", persistParallelism, queueCapacity, batch -> {
+            persist.accept(batch.items, Math.max(0, batch.ids.size() - batch.items.size()));
+            return null;
+        }, meterRegistry));
+
+        for (int i = 0; i < steps.size() - 1; i++) {
+            steps.get(i).next = steps.get(i + 1);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        threads = Executors.newFixedThreadPool(steps.stream().mapToInt(step -> step.parallelism).sum(), runnable -> {
+            Thread thread = new Thread(runnable, "item-pipeline-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Step step : steps) {
+            for (int i = 0; i < step.parallelism; i++) {
+                threads.execute(step::work);
+            }
+        }
+    }
+
+    /**
+     * Puts the chunk into the first queue, waiting while it is full.
+     */
+    @Override
+    public void accept(List<Long> ids) {
+        synchronized (this) {
+            inFlight++;
+        }
+        try {
+            steps.get(0).queue.put(new Batch(ids, List.of()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done();
+            throw new IllegalStateException("Interrupted while waiting for the processing pipeline", e);
+        }
+    }
+
+    private synchronized void done() {
+        if (--inFlight == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every batch accepted so far has left the pipeline (written, skipped or failed).
+     */
+    @Override
+    public synchronized void awaitIdle() {
+        try {
+            while (inFlight > 0) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the steps one after the other: a step only gets its end markers once the step before it has stopped,
+     * so everything that step passed on is already in the queue in front of them.
+     */
+    @Override
+    public void close() {
+        try {
+            for (Step step : steps) {
+                for (int i = 0; i < step.parallelism; i++) {
+                    step.queue.put(END);
+                }
+                step.stopped.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
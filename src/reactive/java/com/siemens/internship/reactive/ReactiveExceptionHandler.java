@@ -0,0 +1,37 @@
+package com.siemens.internship.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WebFlux reports an invalid @Valid @RequestBody with its own exception type, this maps it to the same answer
+ * as the MethodArgumentNotValidException handler of the GlobalExceptionHandler (one entry per invalid field).
+ */
+
+@RestControllerAdvice
+@Profile(ReactiveItemApplication.PROFILE)
+@Slf4j
+public class ReactiveExceptionHandler {
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(WebExchangeBindException.class)
+    public Map<String, String> handleValidationExceptions(WebExchangeBindException ex) {
+        Map<String, String> errorMap = new HashMap<>();
+
+        for (FieldError error : ex.getFieldErrors()) {
+            errorMap.put(error.getField(), error.getDefaultMessage());
+        }
+
+        log.error("Validation error: {}", errorMap);
+
+        return errorMap;
+    }
+}
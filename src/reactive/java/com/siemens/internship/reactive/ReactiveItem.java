@@ -0,0 +1,51 @@
+package com.siemens.internship.reactive;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Email;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * The item as mapped by Spring Data R2DBC. It has the same columns, JSON and validation as the JPA Item,
+ * so both variants of the API send and accept the same documents.
+ * The version is checked and incremented by every save, and lastModified is set by the R2DBC auditing.
+ */
+
+@Data
+@NoArgsConstructor
+@Table("item")
+public class ReactiveItem {
+    @Id
+    private Long id;
+
+    private String name;
+
+    private String description;
+
+    private String status;
+
+    @Email(regexp = "[a-zA-Z0-9._-]+@[a-zA-Z0-9]+\\.[a-z]{2,3}", message = "Email does not have the expected format.")
+    private String email;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    @LastModifiedDate
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant lastModified;
+
+    public ReactiveItem(Long id, String name, String description, String status, String email) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.status = status;
+        this.email = email;
+    }
+}
@@ -0,0 +1,45 @@
+package com.siemens.internship.reactive;
+
+import com.siemens.internship.config.GlobalExceptionHandler;
+import com.siemens.internship.config.ProcessingProperties;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.config.EnableR2dbcAuditing;
+
+/**
+ * Non-blocking variant of the item API: WebFlux on Netty and Spring Data R2DBC on H2, built with "mvn -P reactive".
+ * It only scans its own package, so none of the servlet, JPA or JDBC beans of the InternshipApplication are created,
+ * and every bean of this package is in the "reactive" profile, so the InternshipApplication ignores them in turn.
+ * The error answers come from the same GlobalExceptionHandler, so both variants fail the same way.
+ * Tomcat is still on the classpath (for the servlet application), and Spring Boot would then serve WebFlux from Tomcat too,
+ * so the Netty server factory is declared here.
+ */
+
+@SpringBootApplication(exclude = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class})
+@Profile(ReactiveItemApplication.PROFILE)
+@EnableR2dbcAuditing
+@EnableConfigurationProperties(ProcessingProperties.class)
+@Import(GlobalExceptionHandler.class)
+public class ReactiveItemApplication {
+    public static final String PROFILE = "reactive";
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveItemApplication.class)
+                .profiles(PROFILE)
+                .web(WebApplicationType.REACTIVE)
+                .run(args);
+    }
+}
@@ -0,0 +1,129 @@
+package com.siemens.internship.reactive;
+
+import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.JobAlreadyRunningException;
+import com.siemens.internship.controller.ItemController;
+import com.siemens.internship.controller.ItemETags;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.model.ProcessingMode;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * The /api/items endpoints of the ItemController, without blocking: a request thread (one of the few Netty event loops)
+ * only starts the query and goes back to other connections, and the answer is written when the rows arrive.
+ * Same paths, parameters, status codes, ETags and error bodies. Not available here: sparse fieldsets, search, statistics,
+ * bulk create and the change feed, which rely on the JPA and in-memory components of the servlet application.
+ */
+
+@RestController
+@Profile(ReactiveItemApplication.PROFILE)
+@AllArgsConstructor
+@RequestMapping("/api/items")
+public class ReactiveItemController {
+    private ReactiveItemService itemService;
+    private ReactiveProcessingService processingService;
+
+    /**
+     * Keyset page with the optional filters, the X-Next-Cursor header when the page is full and a page ETag
+     * (a matching If-None-Match gives 304 without a body).
+     */
+    @GetMapping
+    public Mono<ResponseEntity<List<ReactiveItem>>> getAllItems(@RequestParam(required = false) Long after,
+                                                                @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+                                                                @RequestParam(required = false) String status,
+                                                                @RequestParam(required = false) String email,
+                                                                @RequestParam(required = false) String namePrefix) {
+        return itemService.getAllItems(new ItemFilter(status, email, namePrefix), after, limit)
+                .collectList()
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                            .eTag(ItemETags.forPage(page, ReactiveItem::getId, ReactiveItem::getVersion));
+                    if (page.size() == limit) {
+                        response.header(ItemController.NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+                    }
+                    return response.body(page);
+                });
+    }
+
+    /**
+     * Every item as one JSON line, read from the database as fast as the client reads the response:
+     * WebFlux requests the next rows from R2DBC only when the previous ones were written to the socket.
+     */
+    @GetMapping(produces = ItemController.NDJSON_VALUE)
+    public Flux<ReactiveItem> streamAllItems() {
+        return itemService.streamAllItems();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ReactiveItem>> getItemById(@PathVariable Long id) {
+        return itemService.findById(id)
+                .map(item -> ResponseEntity
+                        .ok()
+                        .eTag(ItemETags.forItem(item.getId(), item.getVersion()))
+                        .body(item));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<ReactiveItem>> createItem(@Valid @RequestBody ReactiveItem item) {
+        return itemService.createItem(item)
+                .map(saved -> ResponseEntity
+                        .status(HttpStatus.CREATED)
+                        .eTag(ItemETags.forItem(saved.getId(), saved.getVersion()))
+                        .body(saved));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<ReactiveItem>> updateItem(@PathVariable Long id, @Valid @RequestBody ReactiveItem newItem,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = ifMatch == null ? null : ItemETags.versionFromIfMatch(ifMatch, id);
+
+        return itemService.updateItem(id, newItem, expectedVersion)
+                .map(updated -> ResponseEntity
+                        .status(HttpStatus.CREATED)
+                        .eTag(ItemETags.forItem(updated.getId(), updated.getVersion()))
+                        .body(updated));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteItem(@PathVariable Long id) {
+        return itemService.deleteById(id)
+                .then(Mono.just(ResponseEntity.status(HttpStatus.NO_CONTENT).build()));
+    }
+
+    @PostMapping("/process")
+    public ResponseEntity<ProcessingJobStatus> startProcessing(@RequestParam(defaultValue = "INCREMENTAL") ProcessingMode mode)
+            throws JobAlreadyRunningException {
+        ProcessingJobStatus status = processingService.start(mode);
+
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/api/items/process/" + status.getJobId()))
+                .body(status);
+    }
+
+    @GetMapping("/process/{jobId}")
+    public ResponseEntity<ProcessingJobStatus> getProcessingStatus(@PathVariable String jobId) throws IdNotExistentException {
+        return ResponseEntity.ok(processingService.getStatus(jobId));
+    }
+
+    @DeleteMapping("/process/{jobId}")
+    public ResponseEntity<ProcessingJobStatus> cancelProcessing(@PathVariable String jobId) throws IdNotExistentException {
+        return ResponseEntity
+                .accepted()
+                .body(processingService.cancel(jobId));
+    }
+}
@@ -0,0 +1,40 @@
+package com.siemens.internship.reactive;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface ReactiveItemRepository extends R2dbcRepository<ReactiveItem, Long> {
+    /**
+     * Every item in id order. The rows are emitted as the subscriber requests them, so a slow client slows down the read
+     * instead of the rows piling up in memory.
+     */
+    @Query("SELECT * FROM item ORDER BY id")
+    Flux<ReactiveItem> streamAll();
+
+    /**
+     * Keyset page of ids for the processing runs, the same query as ItemRepository.findIdsAfter.
+     */
+    @Query("SELECT id FROM item WHERE id > :lastId ORDER BY id LIMIT :limit")
+    Flux<Long> findIdsAfter(long lastId, int limit);
+
+    /**
+     * Same as findIdsAfter, restricted to the items modified since the watermark of an incremental run.
+     */
+    @Query("SELECT id FROM item WHERE id > :lastId AND last_modified >= :since ORDER BY id LIMIT :limit")
+    Flux<Long> findChangedIdsAfter(long lastId, Instant since, int limit);
+
+    Mono<Long> countByLastModifiedGreaterThanEqual(Instant since);
+
+    /**
+     * Bulk status change of one chunk, like ItemRepository.updateStatusByIds: the version changes, lastModified does not.
+     */
+    @Modifying
+    @Query("UPDATE item SET status = :status, version = version + 1 WHERE id IN (:ids)")
+    Mono<Integer> updateStatusByIds(Collection<Long> ids, String status);
+}
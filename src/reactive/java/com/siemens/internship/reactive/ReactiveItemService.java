@@ -0,0 +1,92 @@
+package com.siemens.internship.reactive;
+
+import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.PreconditionFailedException;
+import com.siemens.internship.model.ItemFilter;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of the ItemService: every method returns at once with a Mono or a Flux, and the queries run
+ * when the web layer subscribes, on the event loop of the R2DBC driver instead of on a request thread.
+ */
+
+@Service
+@Profile(ReactiveItemApplication.PROFILE)
+@AllArgsConstructor
+public class ReactiveItemService {
+    private ReactiveItemRepository itemRepository;
+    private R2dbcEntityTemplate template;
+
+    /**
+     * Keyset page of the items matching the filter, with the same semantics as ItemService.getAllItems.
+     */
+    public Flux<ReactiveItem> getAllItems(ItemFilter filter, Long after, int limit) {
+        Criteria criteria = Criteria.where("id").greaterThan(after == null ? Long.MIN_VALUE : after);
+        if (filter.getStatus() != null) {
+            criteria = criteria.and("status").is(filter.getStatus());
+        }
+        if (filter.getEmail() != null) {
+            criteria = criteria.and("email").is(filter.getEmail());
+        }
+        if (filter.getNamePrefix() != null && !filter.getNamePrefix().isEmpty()) {
+            String escaped = filter.getNamePrefix()
+                    .replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_");
+            criteria = criteria.and("name").like(escaped + "%");
+        }
+
+        return template.select(ReactiveItem.class)
+                .matching(Query.query(criteria).sort(Sort.by("id")).limit(limit))
+                .all();
+    }
+
+    public Flux<ReactiveItem> streamAllItems() {
+        return itemRepository.streamAll();
+    }
+
+    public Mono<ReactiveItem> findById(Long id) {
+        return itemRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new IdNotExistentException("There is no item with the id " + id)));
+    }
+
+    /**
+     * The id is always generated, a client cannot choose it (or overwrite an existing item through POST).
+     */
+    public Mono<ReactiveItem> createItem(ReactiveItem item) {
+        item.setId(null);
+        item.setVersion(null);
+        return itemRepository.save(item);
+    }
+
+    /**
+     * Same checks as ItemService.updateItem: a missing id gives 404, a version different from the If-Match one gives 412,
+     * and a concurrent update saved in between makes the versioned UPDATE fail with an OptimisticLockingFailureException.
+     */
+    public Mono<ReactiveItem> updateItem(Long id, ReactiveItem newItem, Long expectedVersion) {
+        return findById(id)
+                .flatMap(existing -> {
+                    if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+                        return Mono.error(new PreconditionFailedException("The item with the id " + id
+                                + " was modified, its current version is " + existing.getVersion()));
+                    }
+                    existing.setName(newItem.getName());
+                    existing.setDescription(newItem.getDescription());
+                    existing.setStatus(newItem.getStatus());
+                    existing.setEmail(newItem.getEmail());
+                    return itemRepository.save(existing);
+                });
+    }
+
+    public Mono<Void> deleteById(Long id) {
+        return itemRepository.deleteById(id);
+    }
+}
@@ -0,0 +1,143 @@
+package com.siemens.internship.reactive;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.JobAlreadyRunningException;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.model.ProcessingMode;
+import com.siemens.internship.service.ItemProcessingEngine;
+import com.siemens.internship.service.ProcessingJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Processing jobs of the reactive variant, with the same API as the ProcessingJobService but without an executor:
+ * the keyset pages of ids are read one after the other, and up to item.processing.max-concurrency bulk UPDATEs run
+ * at the same time. The page reads follow the demand of the updates, so at most a few pages are held in memory.
+ *
+ * The watermark of the incremental runs is only kept in memory, a restart makes the next incremental run a full one.
+ */
+
+@Slf4j
+@Service
+@Profile(ReactiveItemApplication.PROFILE)
+public class ReactiveProcessingService {
+    private final ReactiveItemRepository itemRepository;
+    private final ProcessingProperties properties;
+    private final Map<String, ProcessingJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicReference<Instant> watermark = new AtomicReference<>();
+    private ProcessingJob activeJob;
+
+    public ReactiveProcessingService(ReactiveItemRepository itemRepository, ProcessingProperties properties) {
+        this.itemRepository = itemRepository;
+        this.properties = properties;
+    }
+
+    public synchronized ProcessingJobStatus start(ProcessingMode mode) throws JobAlreadyRunningException {
+        if (activeJob != null && !activeJob.getState().isFinished()) {
+            throw new JobAlreadyRunningException("Processing job " + activeJob.getId() + " is still running");
+        }
+
+        ProcessingJob job = new ProcessingJob(UUID.randomUUID().toString(), mode);
+        removeOldJobs();
+        jobs.put(job.getId(), job);
+        activeJob = job;
+
+        run(job).subscribe();
+        log.info("Started {} processing job {}", mode, job.getId());
+        return job.toStatus();
+    }
+
+    public ProcessingJobStatus getStatus(String jobId) throws IdNotExistentException {
+        return findJob(jobId).toStatus();
+    }
+
+    public ProcessingJobStatus cancel(String jobId) throws IdNotExistentException {
+        ProcessingJob job = findJob(jobId);
+        if (!job.getState().isFinished()) {
+            job.cancel();
+            log.info("Cancel requested for processing job {}", jobId);
+        }
+
+        return job.toStatus();
+    }
+
+    private Mono<Void> run(ProcessingJob job) {
+        Instant startedAt = Instant.now();
+        Instant since = job.getMode() == ProcessingMode.INCREMENTAL ? watermark.get() : null;
+        int chunkSize = properties.getChunkSize();
+
+        Mono<Long> total = since == null ? itemRepository.count() : itemRepository.countByLastModifiedGreaterThanEqual(since);
+
+        return total
+                .doOnNext(count -> job.start(count, since))
+                .thenMany(nextChunk(Long.MIN_VALUE, since, chunkSize)
+                        .expand(ids -> ids.size() < chunkSize ? Mono.empty() : nextChunk(ids.get(ids.size() - 1), since, chunkSize))
+                        .takeWhile(ids -> !ids.isEmpty() && !job.isCancelRequested())
+                        .flatMap(ids -> processChunk(ids, job), properties.getMaxConcurrency()))
+                .then(Mono.fromRunnable(() -> {
+                    job.finish();
+                    if (!job.isCancelRequested() && job.getFailed() == 0) {
+                        watermark.set(startedAt.minus(properties.getWatermarkOverlap()));
+                    }
+                    log.info("Processing job {} finished: {} processed, {} failed", job.getId(), job.getProcessed(),
+                            job.getFailed());
+                }))
+                .onErrorResume(ex -> {
+                    log.error("Processing job {} failed", job.getId(), ex);
+                    job.fail(ex);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<List<Long>> nextChunk(long lastId, Instant since, int chunkSize) {
+        Flux<Long> ids = since == null
+                ? itemRepository.findIdsAfter(lastId, chunkSize)
+                : itemRepository.findChangedIdsAfter(lastId, since, chunkSize);
+        return ids.collectList();
+    }
+
+    private Mono<Integer> processChunk(List<Long> ids, ProcessingJob job) {
+        return itemRepository.updateStatusByIds(ids, ItemProcessingEngine.PROCESSED_STATUS)
+                .doOnNext(job::chunkProcessed)
+                .onErrorResume(ex -> {
+                    log.error("Chunk of {} items after id {} failed", ids.size(), ids.get(0), ex);
+                    job.chunkFailed(ids.size());
+                    return Mono.empty();
+                });
+    }
+
+    private ProcessingJob findJob(String jobId) throws IdNotExistentException {
+        ProcessingJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new IdNotExistentException("There is no processing job with the id " + jobId);
+        }
+
+        return job;
+    }
+
+    private void removeOldJobs() {
+        Iterator<ProcessingJob> finished = jobs.values().stream()
+                .filter(job -> job.getState().isFinished())
+                .sorted(Comparator.comparing(ProcessingJob::getStartedAt))
+                .iterator();
+
+        int toRemove = jobs.size() - properties.getRetainedJobs() + 1;
+        while (toRemove-- > 0 && finished.hasNext()) {
+            jobs.remove(finished.next().getId());
+        }
+    }
+}
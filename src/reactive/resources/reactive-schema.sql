@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS item (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255),
+    description VARCHAR(255),
+    status VARCHAR(255),
+    email VARCHAR(255),
+    version BIGINT,
+    last_modified TIMESTAMP(6) WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_item_status ON item (status, id);
+CREATE INDEX IF NOT EXISTS idx_item_email ON item (email, id);
+CREATE INDEX IF NOT EXISTS idx_item_name ON item (name, id);
+CREATE INDEX IF NOT EXISTS idx_item_last_modified ON item (last_modified, id);
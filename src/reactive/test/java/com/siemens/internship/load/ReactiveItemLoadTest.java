@@ -0,0 +1,92 @@
+package com.siemens.internship.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siemens.internship.reactive.ReactiveItem;
+import com.siemens.internship.reactive.ReactiveItemApplication;
+import com.siemens.internship.reactive.ReactiveItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LOAD TEST of the reactive variant, with the same CRUD scenario, rate and options as the ItemLoadTest:
+ *     mvn -P reactive,loadtest test -Dload.scenarios=CRUD [-Dload.rate=1000 ...]
+ * runs both, one after the other, and writes crud-&lt;time&gt;.json and reactive_crud-&lt;time&gt;.json to target/load-test
+ * with the latencies and the number of request threads each server needed.
+ */
+
+@Slf4j
+@Tag("load")
+@SpringBootTest(classes = ReactiveItemApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles(ReactiveItemApplication.PROFILE)
+public class ReactiveItemLoadTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static List<Long> ids;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReactiveItemRepository itemRepository;
+
+    @BeforeEach
+    void seed() throws IOException {
+        if (ids != null) {
+            return;
+        }
+
+        List<ReactiveItem> fixture = objectMapper.readValue(Files.readString(Paths.get("src/test/resources/fixtures/item_seed.json")),
+                new TypeReference<List<ReactiveItem>>() {});
+        ids = Flux.range(0, ItemLoadTest.SEED_ITEMS)
+                .map(i -> {
+                    ReactiveItem template = fixture.get(i % fixture.size());
+                    return new ReactiveItem(null, template.getName() + "-" + i, template.getDescription(),
+                            template.getStatus(), template.getEmail());
+                })
+                .buffer(1000)
+                .concatMap(itemRepository::saveAll)
+                .map(ReactiveItem::getId)
+                .collectList()
+                .block(Duration.ofMinutes(5));
+        log.info("Seeded {} items", ids.size());
+    }
+
+    @Test
+    void load() throws Exception {
+        if (!ItemLoadTest.SCENARIOS.isBlank() && !List.of(ItemLoadTest.SCENARIOS.split(",")).contains("CRUD")) {
+            log.info("Skipping the reactive CRUD scenario");
+            return;
+        }
+
+        String baseUrl = "http://localhost:" + port;
+        LoadGenerator generator = new LoadGenerator(2000, Duration.ofSeconds(10));
+        Supplier<LoadGenerator.LoadRequest> requests = ItemLoadTest.requests(ItemLoadTest.Scenario.CRUD, baseUrl, ids);
+
+        generator.run("REACTIVE_CRUD", baseUrl, ItemLoadTest.RATE, ItemLoadTest.WARMUP, requests, () -> 0L, "reactor-http-");
+        LoadReport report = generator.run("REACTIVE_CRUD", baseUrl, ItemLoadTest.RATE, ItemLoadTest.DURATION, requests,
+                () -> 0L, "reactor-http-");
+        ItemLoadTest.write(report);
+
+        LoadReport.EndpointStats total = report.getTotal();
+        assertTrue(total.getRequests() > 0, "no request was answered");
+        assertTrue(total.getErrors() <= total.getRequests() / 100, "more than 1% of the requests failed");
+    }
+}
@@ -0,0 +1,240 @@
+package com.siemens.internship.reactive;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * INTEGRATION TESTS of the reactive variant, the same requests as in the ItemControllerTest
+ * sent with the WebTestClient, to check that both variants answer the same way.
+ */
+
+@SpringBootTest(classes = ReactiveItemApplication.class, properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+@ActiveProfiles(ReactiveItemApplication.PROFILE)
+public class ReactiveItemControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveItemRepository itemRepository;
+
+    private static final String FIXTURE_PATH = "src/test/resources/fixtures/";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<ReactiveItem> seeded;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<ReactiveItem> items = objectMapper.readValue(loadFixture("item_seed.json"),
+                new TypeReference<List<ReactiveItem>>() {});
+        items.forEach(item -> item.setId(null));
+        seeded = itemRepository.deleteAll()
+                .thenMany(itemRepository.saveAll(items))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+    }
+
+    private String loadFixture(String fileName) throws IOException {
+        return Files.readString(Paths.get(FIXTURE_PATH + fileName));
+    }
+
+    @Test
+    void testGetItemsInPages() {
+        String cursor = webTestClient.get().uri("/api/items?limit=3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .returnResult()
+                .getResponseHeaders()
+                .getFirst("X-Next-Cursor");
+
+        webTestClient.get().uri("/api/items?limit=3&after=" + cursor)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("X-Next-Cursor")
+                .expectBody()
+                .jsonPath("$[*].name").value(containsInAnyOrder("p4", "p5"));
+    }
+
+    @Test
+    void testFilterItems() {
+        webTestClient.get().uri("/api/items?status=ADDED")
+                .exchange()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(4)
+                .jsonPath("$[*].status").value(everyItem(equalTo("ADDED")));
+
+        webTestClient.get().uri("/api/items?namePrefix=p4")
+                .exchange()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].email").isEqualTo("u4@mail.com");
+    }
+
+    @Test
+    void testGetItemsInvalidLimit() {
+        webTestClient.get().uri("/api/items?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.limit").exists();
+    }
+
+    @Test
+    void testStreamItemsAsNdjson() throws Exception {
+        String body = webTestClient.get().uri("/api/items")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(5, lines.size());
+        for (String line : lines) {
+            assertTrue(objectMapper.readValue(line, ReactiveItem.class).getName().startsWith("p"));
+        }
+    }
+
+    @Test
+    void testConditionalGetOfItem() throws Exception {
+        Long id = seeded.get(0).getId();
+        webTestClient.get().uri("/api/items/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"" + id + ".0\"")
+                .expectBody()
+                .jsonPath("$.version").isEqualTo(0);
+
+        webTestClient.get().uri("/api/items/{id}", id)
+                .header("If-None-Match", "\"" + id + ".0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+
+        webTestClient.put().uri("/api/items/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(loadFixture("valid_update_item.json"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("ETag", "\"" + id + ".1\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("pNew")
+                .jsonPath("$.lastModified").exists();
+    }
+
+    @Test
+    void testAddNewValidAndInvalidItem() throws Exception {
+        webTestClient.post().uri("/api/items")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(loadFixture("valid_item.json"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").exists()
+                .jsonPath("$.email").isEqualTo("new@mail.com");
+
+        webTestClient.post().uri("/api/items")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(loadFixture("invalid_item.json"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.email").isEqualTo("Email does not have the expected format.");
+    }
+
+    @Test
+    void testUpdateWithIfMatchAndMissingItem() throws Exception {
+        Long id = seeded.get(1).getId();
+        webTestClient.put().uri("/api/items/{id}", id)
+                .header("If-Match", "\"" + id + ".5\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(loadFixture("valid_update_item.json"))
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("The item with the id " + id + " was modified, its current version is 0");
+
+        webTestClient.put().uri("/api/items/{id}", 999)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(loadFixture("valid_update_item.json"))
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("There is no item with the id 999");
+    }
+
+    @Test
+    void testDeleteExistingItem() {
+        Long id = seeded.get(0).getId();
+        webTestClient.delete().uri("/api/items/{id}", id)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/api/items/{id}", id)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testProcessItems() throws Exception {
+        String location = webTestClient.post().uri("/api/items/process?mode=FULL")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .jsonPath("$.jobId").exists()
+                .returnResult()
+                .getResponseHeaders()
+                .getLocation()
+                .toString();
+
+        String state = "RUNNING";
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (state.equals("RUNNING") && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            state = objectMapper.readTree(webTestClient.get().uri(location)
+                    .exchange()
+                    .expectBody(String.class)
+                    .returnResult()
+                    .getResponseBody()).get("state").asText();
+        }
+
+        webTestClient.get().uri(location)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.state").isEqualTo("COMPLETED")
+                .jsonPath("$.total").isEqualTo(5)
+                .jsonPath("$.processed").isEqualTo(5);
+        webTestClient.get().uri("/api/items")
+                .exchange()
+                .expectBody()
+                .jsonPath("$[*].status").value(everyItem(equalTo("PROCESSED")));
+
+        webTestClient.get().uri("/api/items/process/missing")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
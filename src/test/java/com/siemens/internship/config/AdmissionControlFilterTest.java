@@ -0,0 +1,200 @@
+package com.siemens.internship.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UNIT TESTS for the admission control in front of the item API, following the GIVEN-WHEN-THEN pattern.
+ */
+
+public class AdmissionControlFilterTest {
+    private AdmissionProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AdmissionProperties();
+        properties.setRead(new AdmissionProperties.Budget(3, 0.5));
+        properties.setWrite(new AdmissionProperties.Budget(1, 0.5));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private AdmissionControlFilter filter() {
+        return new AdmissionControlFilter(properties, meterRegistry, new ObjectMapper());
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        if (client != null) {
+            request.addHeader("X-Client-Id", client);
+        }
+        return request;
+    }
+
+    private static MockHttpServletResponse send(AdmissionControlFilter filter, MockHttpServletRequest request,
+                                                FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletResponse send(AdmissionControlFilter filter, MockHttpServletRequest request)
+            throws Exception {
+        return send(filter, request, new MockFilterChain());
+    }
+
+    @Test
+    void testClientOverItsBudgetGets429() throws Exception {
+        // given
+        AdmissionControlFilter filter = filter();
+
+        // when - the bucket holds 3 reads and refills one every 2 seconds
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, send(filter, request("GET", "/api/items", "alice")).getStatus());
+        }
+        MockHttpServletResponse rejected = send(filter, request("GET", "/api/items", "alice"));
+
+        // then - alice is told when to come back, bob has his own bucket
+        assertEquals(429, rejected.getStatus());
+        assertEquals("2", rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("\"error\""));
+        assertEquals(200, send(filter, request("GET", "/api/items", "bob")).getStatus());
+        assertEquals(1.0, meterRegistry.get("item.admission.rejected").tag("reason", "rate_limited").tag("class", "read")
+                .counter().count());
+    }
+
+    @Test
+    void testReadsWritesAndProcessingHaveSeparateBudgets() throws Exception {
+        // given
+        AdmissionControlFilter filter = filter();
+
+        // when
+        assertEquals(200, send(filter, request("PUT", "/api/items/1", "alice")).getStatus());
+        MockHttpServletResponse secondWrite = send(filter, request("DELETE", "/api/items/1", "alice"));
+
+        // then - the write budget is spent, but reads and processing still go through
+        assertEquals(429, secondWrite.getStatus());
+        assertEquals(200, send(filter, request("GET", "/api/items/1", "alice")).getStatus());
+        assertEquals(200, send(filter, request("POST", "/api/items/process", "alice")).getStatus());
+        assertEquals(200, send(filter, request("GET", "/api/items/process/abc", "alice")).getStatus());
+    }
+
+    @Test
+    void testRequestsWithoutClientHeaderAreLimitedByAddress() throws Exception {
+        // given
+        AdmissionControlFilter filter = filter();
+        MockHttpServletRequest first = request("POST", "/api/items", null);
+        MockHttpServletRequest second = request("POST", "/api/items", null);
+        MockHttpServletRequest other = request("POST", "/api/items", null);
+        other.setRemoteAddr("10.0.0.2");
+
+        // then
+        assertEquals(200, send(filter, first).getStatus());
+        assertEquals(429, send(filter, second).getStatus());
+        assertEquals(200, send(filter, other).getStatus());
+    }
+
+    @Test
+    void testOtherPathsAndDisabledFilterAreNotLimited() throws Exception {
+        // given
+        properties.setWrite(new AdmissionProperties.Budget(0, 0));
+        AdmissionControlFilter filter = filter();
+
+        // then
+        assertEquals(429, send(filter, request("POST", "/api/items", "alice")).getStatus());
+        assertEquals(200, send(filter, request("POST", "/api/admin/snapshot", "alice")).getStatus());
+        assertEquals(200, send(filter, request("POST", "/api/itemsx", "alice")).getStatus());
+
+        // when
+        properties.setEnabled(false);
+
+        // then
+        assertEquals(200, send(filter, request("POST", "/api/items", "alice")).getStatus());
+    }
+
+    @Test
+    void testRequestsOverTheConcurrencyLimitAreShedAfterTheQueueTime() throws Exception {
+        // given - one slot, taken by a request that blocks until released
+        properties.setMaxConcurrentRequests(1);
+        properties.setMaxQueueTime(Duration.ofMillis(50));
+        AdmissionControlFilter filter = filter();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<MockHttpServletResponse> slow = CompletableFuture.supplyAsync(() -> {
+            try {
+                return send(filter, request("GET", "/api/items", "alice"), (request, response) -> {
+                    running.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // when
+        long start = System.nanoTime();
+        MockHttpServletResponse shed = send(filter, request("GET", "/api/items", "bob"));
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // then - bob waited only the queue time and is told to retry
+        assertEquals(503, shed.getStatus());
+        assertEquals("1", shed.getHeader("Retry-After"));
+        assertTrue(waitedMillis >= 40 && waitedMillis < 2000, "waited " + waitedMillis + " ms");
+        assertEquals(1.0, meterRegistry.get("item.admission.in_flight").gauge().value());
+
+        release.countDown();
+        assertEquals(200, slow.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(200, send(filter, request("GET", "/api/items", "bob")).getStatus());
+        assertEquals(0.0, meterRegistry.get("item.admission.in_flight").gauge().value());
+    }
+
+    @Test
+    void testFullQueueIsShedImmediately() throws Exception {
+        // given - no slots and no room in the queue
+        properties.setMaxConcurrentRequests(0);
+        properties.setMaxQueuedRequests(0);
+        properties.setMaxQueueTime(Duration.ofSeconds(10));
+        AdmissionControlFilter filter = filter();
+
+        // when
+        long start = System.nanoTime();
+        MockHttpServletResponse shed = send(filter, request("GET", "/api/items", "alice"));
+
+        // then
+        assertEquals(503, shed.getStatus());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1.0, meterRegistry.get("item.admission.rejected").tag("reason", "queue_full").counter().count());
+    }
+
+    @Test
+    void testRequestsThatWaitedTooLongUpstreamAreShed() throws Exception {
+        // given
+        AdmissionControlFilter filter = filter();
+        MockHttpServletRequest stale = request("GET", "/api/items", "alice");
+        stale.addHeader("X-Request-Start", String.valueOf(System.currentTimeMillis() - 10_000));
+        MockHttpServletRequest fresh = request("GET", "/api/items", "alice");
+        fresh.addHeader("X-Request-Start", String.format("t=%.3f", System.currentTimeMillis() / 1000.0));
+
+        // then
+        assertEquals(503, send(filter, stale).getStatus());
+        assertEquals(200, send(filter, fresh).getStatus());
+    }
+}
@@ -0,0 +1,113 @@
+package com.siemens.internship.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UNIT TESTS for the bulkheads and the executor modes. Virtual threads only exist on Java 21+, so the expected executor
+ * depends on the runtime.
+ */
+
+public class AsyncConfigTest {
+    @Test
+    void testPlatformMode() {
+        // given
+        ExecutorProperties properties = new ExecutorProperties();
+        properties.getDb().setCorePoolSize(3);
+
+        // when
+        BulkheadExecutor executor = new AsyncConfig().dbExecutor(properties, new SimpleMeterRegistry());
+
+        // then
+        assertEquals(3, executor.getCorePoolSize());
+        assertEquals(AsyncConfig.DB_EXECUTOR, executor.getName());
+        executor.shutdown();
+    }
+
+    @Test
+    void testRejectedTasksAreCountedInsteadOfRunningOnCaller() throws Exception {
+        // given - one thread and no queue
+        ExecutorProperties properties = new ExecutorProperties();
+        properties.setDb(new ExecutorProperties.Bulkhead(1, 1, 0, properties.getDb().getDeadline()));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BulkheadExecutor executor = new AsyncConfig().dbExecutor(properties, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // when
+        boolean[] ran = new boolean[1];
+        assertThrows(TaskRejectedException.class, () -> executor.execute(() -> ran[0] = true));
+        release.countDown();
+
+        // then
+        assertFalse(ran[0]);
+        assertEquals(1, meterRegistry.get("executor.rejected").tag("name", AsyncConfig.DB_EXECUTOR).counter().count());
+        executor.shutdown();
+    }
+
+    @Test
+    void testBulkheadsDoNotShareThreads() throws Exception {
+        // given - every db thread and queue slot is taken
+        ExecutorProperties properties = new ExecutorProperties();
+        properties.setDb(new ExecutorProperties.Bulkhead(1, 1, 0, properties.getDb().getDeadline()));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AsyncConfig config = new AsyncConfig();
+        BulkheadExecutor db = config.dbExecutor(properties, meterRegistry);
+        BulkheadExecutor cpu = config.cpuExecutor(properties, meterRegistry);
+        BulkheadExecutor orchestration = config.orchestrationExecutor(properties, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        db.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // when
+        String cpuThread = cpu.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        String orchestrationThread = orchestration.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        // then - the other bulkheads still run their tasks, on their own threads
+        assertTrue(cpuThread.startsWith(AsyncConfig.CPU_EXECUTOR + "-"));
+        assertTrue(orchestrationThread.startsWith(AsyncConfig.ORCHESTRATION_EXECUTOR + "-"));
+        db.shutdown();
+        cpu.shutdown();
+        orchestration.shutdown();
+    }
+
+    @Test
+    void testVirtualMode() throws Exception {
+        // given
+        ExecutorProperties properties = new ExecutorProperties();
+        properties.setMode(ExecutorProperties.Mode.VIRTUAL);
+        properties.setMaxConcurrency(4);
+
+        // when
+        BulkheadExecutor executor = new AsyncConfig().dbExecutor(properties, new SimpleMeterRegistry());
+        String threadName = executor.submit(() -> Thread.currentThread().getName()).get();
+
+        // then
+        if (Runtime.version().feature() >= 21) {
+            assertEquals(4, executor.getMaxPoolSize());
+            assertTrue(threadName.startsWith("VirtualThread-"));
+        } else {
+            assertEquals(properties.getDb().getMaxPoolSize(), executor.getMaxPoolSize());
+            assertTrue(threadName.startsWith(AsyncConfig.DB_EXECUTOR + "-"));
+        }
+        executor.shutdown();
+    }
+}
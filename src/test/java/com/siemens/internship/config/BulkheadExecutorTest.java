@@ -0,0 +1,113 @@
+package com.siemens.internship.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UNIT TESTS for the deadlines of the BulkheadExecutor, with a single thread so the second task has to wait in the queue.
+ */
+
+public class BulkheadExecutorTest {
+    private SimpleMeterRegistry meterRegistry;
+    private BulkheadExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new BulkheadExecutor("test", new ExecutorProperties.Bulkhead(1, 1, 10, Duration.ofSeconds(5)), meterRegistry);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testTaskInTimeCompletesWithItsResult() throws Exception {
+        // when
+        CompletableFuture<Integer> result = executor.submit(() -> 42, Duration.ofSeconds(1));
+
+        // then
+        assertEquals(42, result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("executor.queue.wait").tag("name", "test").timer().count());
+    }
+
+    @Test
+    void testRunningTaskPastItsDeadlineIsInterrupted() throws Exception {
+        // given
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        // when
+        CompletableFuture<Object> result = executor.submit(() -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }, Duration.ofMillis(100));
+
+        // then
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("executor.deadline.exceeded").tag("phase", "running").counter().count());
+    }
+
+    @Test
+    void testQueuedTaskPastItsDeadlineNeverRuns() throws Exception {
+        // given - the only thread is busy
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> release.await(5, TimeUnit.SECONDS), Duration.ofSeconds(5));
+        AtomicBoolean ran = new AtomicBoolean();
+
+        // when
+        CompletableFuture<Object> queued = executor.submit(() -> ran.getAndSet(true), Duration.ofMillis(100));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        release.countDown();
+        executor.submit(() -> null, Duration.ofSeconds(1)).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertFalse(ran.get());
+        assertEquals(0, executor.getQueueSize());
+        assertEquals(1, meterRegistry.get("executor.deadline.exceeded").tag("phase", "queued").counter().count());
+    }
+
+    @Test
+    void testCancellingTheFutureInterruptsTheTask() throws Exception {
+        // given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<Object> result = executor.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }, Duration.ofSeconds(5));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // when
+        result.cancel(true);
+
+        // then
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, meterRegistry.get("executor.deadline.exceeded").tag("phase", "running").counter().count());
+    }
+}
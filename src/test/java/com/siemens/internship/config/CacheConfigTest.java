@@ -0,0 +1,112 @@
+package com.siemens.internship.config;
+
+import com.siemens.internship.model.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.cache.Cache;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UNIT TESTS for the items cache, following the GIVEN-WHEN-THEN pattern.
+ * A load that is still reading the old row is held on a latch while a writer updates or evicts the same item.
+ */
+
+public class CacheConfigTest {
+    private Cache cache;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties properties = new CacheProperties();
+        properties.setCacheNames(List.of(CacheConfig.ITEMS_CACHE));
+        properties.getCaffeine().setSpec("maximumSize=100,expireAfterWrite=10m");
+        cache = new CacheConfig().cacheManager(properties).getCache(CacheConfig.ITEMS_CACHE);
+    }
+
+    private static Item item(long version, String status) {
+        Item item = new Item(1L, "p1", "desc", status, "p1@mail.com");
+        item.setVersion(version);
+        return item;
+    }
+
+    /**
+     * Starts a read-through load of item 1 that returns the old row, and waits until it has read it.
+     */
+    private CompletableFuture<Item> loadOldRow(CountDownLatch release) throws InterruptedException {
+        CountDownLatch loading = new CountDownLatch(1);
+        CompletableFuture<Item> load = CompletableFuture.supplyAsync(() -> cache.get(1L, () -> {
+            loading.countDown();
+            release.await();
+            return item(0, "ADDED");
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        return load;
+    }
+
+    /**
+     * Waits until the writer is blocked on the entry (or finished, when the cache would let it through).
+     */
+    private static void awaitBlockedOrDone(Thread writer) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.getState() != Thread.State.BLOCKED && writer.getState() != Thread.State.WAITING
+                && writer.getState() != Thread.State.TERMINATED && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void testOlderVersionDoesNotReplaceANewerOne() {
+        // given
+        cache.put(1L, item(3, "PROCESSED"));
+
+        // when - the update of version 2 arrives last
+        cache.put(1L, item(2, "UPDATED"));
+
+        // then
+        assertEquals(3L, cache.get(1L, Item.class).getVersion());
+        cache.put(1L, item(4, "UPDATED"));
+        assertEquals(4L, cache.get(1L, Item.class).getVersion());
+    }
+
+    @Test
+    void testUpdateDuringALoadIsNotOverwrittenByTheLoad() throws Exception {
+        // given - a load that read version 0 before the update committed
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Item> load = loadOldRow(release);
+
+        // when - the update puts version 1, then the load finishes
+        Thread writer = new Thread(() -> cache.put(1L, item(1, "UPDATED")));
+        writer.start();
+        awaitBlockedOrDone(writer);
+        release.countDown();
+        load.get(5, TimeUnit.SECONDS);
+        writer.join(5000);
+
+        // then
+        assertEquals(1L, cache.get(1L, Item.class).getVersion());
+    }
+
+    @Test
+    void testDeleteDuringALoadLeavesNothingCached() throws Exception {
+        // given - a load that read the row before the delete committed
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Item> load = loadOldRow(release);
+
+        // when - the delete evicts the item, then the load finishes
+        Thread writer = new Thread(() -> cache.evict(1L));
+        writer.start();
+        awaitBlockedOrDone(writer);
+        release.countDown();
+        load.get(5, TimeUnit.SECONDS);
+        writer.join(5000);
+
+        // then - the eviction waited for the load, so the deleted item is not served from the cache
+        assertNull(cache.get(1L));
+    }
+}
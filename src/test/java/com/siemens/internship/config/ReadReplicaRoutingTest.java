@@ -0,0 +1,105 @@
+package com.siemens.internship.config;
+
+import com.siemens.internship.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The primary and the replica are two different in-memory databases here, so it can be seen which one a request used:
+ * the replica only has the item 999, which Hibernate does not know about on the primary.
+ */
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing_primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "item.datasource.replica.jdbc-url=jdbc:h2:mem:routing_replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+})
+public class ReadReplicaRoutingTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("CREATE TABLE IF NOT EXISTS item (id BIGINT PRIMARY KEY, name VARCHAR(255), description VARCHAR(255), " +
+                "status VARCHAR(255), email VARCHAR(255), version BIGINT, last_modified TIMESTAMP(6) WITH TIME ZONE)");
+        replica.update("DELETE FROM item");
+        replica.update("INSERT INTO item (id, name, description, status, email, version) " +
+                "VALUES (999, 'replica-only', 'd', 'ADDED', 'r@mail.com', 0)");
+        itemRepository.deleteAll();
+        cacheManager.getCache(CacheConfig.ITEMS_CACHE).clear();
+    }
+
+    @Test
+    void testReadsGoToTheReplicaAndWritesToThePrimary() throws Exception {
+        // reads: the item only exists on the replica
+        mockMvc.perform(get("/api/items/{id}", 999))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("replica-only"));
+        mockMvc.perform(get("/api/items").param("status", "ADDED"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(999));
+
+        // writes: the primary has no item 999, and a created item is not on the replica
+        mockMvc.perform(put("/api/items/{id}", 999)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"x\",\"description\":\"d\",\"status\":\"UPDATED\",\"email\":\"x@mail.com\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"new\",\"description\":\"d\",\"status\":\"ADDED\",\"email\":\"n@mail.com\"}"))
+                .andExpect(status().isCreated());
+
+        assertEquals(1, itemRepository.count());
+        mockMvc.perform(get("/api/items"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(999));
+    }
+
+    @Test
+    void testReadOnlyTransactionDoesNotFlushChanges() {
+        // GIVEN a read-only transaction that changes a loaded item
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> itemRepository.findById(999L).orElseThrow().setName("changed"));
+
+        // THEN nothing was written
+        assertEquals("replica-only", replica.queryForObject("SELECT name FROM item WHERE id = 999", String.class));
+    }
+}
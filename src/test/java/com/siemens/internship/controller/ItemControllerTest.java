@@ -2,33 +2,55 @@ package com.siemens.internship.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siemens.internship.config.CacheConfig;
+import com.siemens.internship.config.SnapshotProperties;
+import com.siemens.internship.config.WriteBehindProperties;
 import com.siemens.internship.model.Item;
 import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.ProcessingWatermarkRepository;
+import com.siemens.internship.service.ItemAggregates;
+import com.siemens.internship.service.ItemChangeFeed;
+import com.siemens.internship.service.ItemSearchIndex;
+import com.siemens.internship.service.ItemSnapshotService;
+import com.siemens.internship.service.ItemWriteBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability
 @TestPropertySource(locations = "classpath:application-test.properties")
 public class ItemControllerTest {
     @Autowired
@@ -37,6 +59,30 @@ public class ItemControllerTest {
     @Autowired
     private ItemRepository itemRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProcessingWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private ItemSnapshotService snapshotService;
+
+    @Autowired
+    private SnapshotProperties snapshotProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ItemSearchIndex searchIndex;
+
+    @Autowired
+    private ItemChangeFeed changeFeed;
+
+    @Autowired
+    private ItemAggregates itemAggregates;
+
     private static final String FIXTURE_PATH = "src/test/resources/fixtures/";
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -44,13 +90,21 @@ public class ItemControllerTest {
     void setUp() throws Exception {
         itemRepository.deleteAll();
         itemRepository.flush();
+        watermarkRepository.deleteAll();
+        cacheManager.getCache(CacheConfig.ITEMS_CACHE).clear();
         seedDatabase();
+        // the seed is saved through the repository, so the search index and the aggregates are rebuilt like after a restore
+        searchIndex.rebuild();
+        itemAggregates.rebuild();
     }
 
+    private List<Item> seeded;
+
     private void seedDatabase() throws Exception {
         String seedDataJSON = loadFixture("item_seed.json");
         List<Item> users = objectMapper.readValue(seedDataJSON, new TypeReference<List<Item>>() {});
-        itemRepository.saveAll(users);
+        users.forEach(item -> item.setId(null));
+        seeded = itemRepository.saveAll(users);
     }
 
     private String loadFixture(String fileName) throws IOException {
@@ -67,6 +121,204 @@ public class ItemControllerTest {
 
     }
 
+    @Test
+    void testGetItemsInPages() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/api/items").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+
+        String cursor = firstPage.getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/api/items").param("after", cursor).param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[*].name", Matchers.containsInAnyOrder("p4", "p5")))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void testFilterItems() throws Exception {
+        mockMvc.perform(get("/api/items").param("status", "ADDED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[*].status", everyItem(equalTo("ADDED"))));
+
+        mockMvc.perform(get("/api/items").param("email", "u4@mail.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("p4"));
+
+        mockMvc.perform(get("/api/items").param("namePrefix", "p").param("status", "ADDED").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().exists("X-Next-Cursor"));
+
+        mockMvc.perform(get("/api/items").param("namePrefix", "p%"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void testSparseFieldset() throws Exception {
+        mockMvc.perform(get("/api/items").param("fields", "name,status").param("status", "ADDED").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(seeded.get(0).getId()))
+                .andExpect(jsonPath("$[0].name").exists())
+                .andExpect(jsonPath("$[0].status").value("ADDED"))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(jsonPath("$[0].email").doesNotExist())
+                .andExpect(header().string("X-Next-Cursor", String.valueOf(seeded.get(1).getId())));
+
+        mockMvc.perform(get("/api/items").param("fields", "name,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Items have no field named password"));
+    }
+
+    @Test
+    void testSearchItems() throws Exception {
+        // GIVEN one seeded item renamed and one created through the API
+        mockMvc.perform(put("/api/items/{id}", seeded.get(0).getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_update_item.json")))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_item.json")))
+                .andExpect(status().isCreated());
+
+        // THEN both are found by their new name, the old name is gone, and a deleted item disappears
+        mockMvc.perform(get("/api/items/search").param("q", "PNEW"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].item.id").value(seeded.get(0).getId()))
+                .andExpect(jsonPath("$[0].item.status").value("UPDATED"))
+                .andExpect(jsonPath("$[0].score").isNumber());
+        mockMvc.perform(get("/api/items/search").param("q", "p1"))
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/api/items/search").param("q", "desc2"))
+                .andExpect(jsonPath("$[0].item.name").value("p3"));
+
+        mockMvc.perform(delete("/api/items/{id}", seeded.get(2).getId()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/items/search").param("q", "desc2"))
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        mockMvc.perform(get("/api/items/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetStatistics() throws Exception {
+        mockMvc.perform(get("/api/items/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(5))
+                .andExpect(jsonPath("$.byStatus.ADDED").value(4))
+                .andExpect(jsonPath("$.byStatus.UPDATED").value(1))
+                .andExpect(jsonPath("$.topEmailDomains['mail.com']").value(5));
+    }
+
+    @Test
+    void testStatisticsFollowCreatesUpdatesAndDeletes() throws Exception {
+        // WHEN an item is created, one is updated and one deleted through the API
+        mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"new\",\"description\":\"d\",\"status\":\"ADDED\",\"email\":\"n@other.com\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/items/{id}", seeded.get(0).getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"p1\",\"description\":\"d\",\"status\":\"UPDATED\",\"email\":\"u@other.com\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(delete("/api/items/{id}", seeded.get(1).getId()))
+                .andExpect(status().isNoContent());
+
+        // THEN the statistics follow without a rebuild, and agree with the table
+        mockMvc.perform(get("/api/items/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(5))
+                .andExpect(jsonPath("$.byStatus.ADDED").value(3))
+                .andExpect(jsonPath("$.byStatus.UPDATED").value(2))
+                .andExpect(jsonPath("$.topEmailDomains['mail.com']").value(3))
+                .andExpect(jsonPath("$.topEmailDomains['other.com']").value(2));
+        assertTrue(itemAggregates.reconcile());
+    }
+
+    @Test
+    void testGetItemsInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/items").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.limit").exists());
+    }
+
+    @Test
+    void testStreamItemsAsNdjson() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/items").accept("application/x-ndjson"))
+                .andReturn();
+
+        assertTrue(mvcResult.getRequest().isAsyncStarted());
+
+        String body = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(5, lines.size());
+        for (String line : lines) {
+            Item item = objectMapper.readValue(line, Item.class);
+            assertTrue(item.getName().startsWith("p"));
+        }
+    }
+
+    @Test
+    void testChangeFeedSendsChangesAsServerSentEvents() throws Exception {
+        // GIVEN a client resuming from the current end of the feed
+        long since = changeFeed.getLastSequence();
+        MvcResult subscription = mockMvc.perform(get("/api/items/changes").param("since", Long.toString(since))
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertTrue(subscription.getRequest().isAsyncStarted());
+
+        // WHEN an item is created, updated and deleted
+        mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_item.json")))
+                .andExpect(status().isCreated());
+        Long id = seeded.get(0).getId();
+        mockMvc.perform(put("/api/items/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_update_item.json")))
+                .andExpect(status().isCreated());
+        mockMvc.perform(delete("/api/items/{id}", id))
+                .andExpect(status().isNoContent());
+
+        // THEN the three events arrive in order, numbered after "since"
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!subscription.getResponse().getContentAsString().contains("event:deleted") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        String body = subscription.getResponse().getContentAsString();
+        assertTrue(body.indexOf("event:created") < body.indexOf("event:updated"), body);
+        assertTrue(body.indexOf("event:updated") < body.indexOf("event:deleted"), body);
+        assertTrue(body.contains("id:" + (since + 1)), body);
+        assertTrue(body.contains("\"ids\":[" + id + "]"), body);
+        subscription.getRequest().getAsyncContext().complete();
+
+        // AND a client can resume from an event it saw, but not from one the server never sent
+        mockMvc.perform(get("/api/items/changes").header("Last-Event-ID", since + 2)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/items/changes").param("since", Long.toString(since + 1000))
+                        .accept(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
     @Test
     void testAddNewValidItem() throws Exception {
         String validItemJson = loadFixture("valid_item.json");
@@ -93,15 +345,45 @@ public class ItemControllerTest {
 
     }
 
+    @Test
+    void testCreateItemsInBatch() throws Exception {
+        String batchJson = "[" + loadFixture("valid_item.json") + "," + loadFixture("valid_update_item.json") + "]";
+
+        mockMvc.perform(post("/api/items/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted.length()").value(2))
+                .andExpect(jsonPath("$.accepted[0].id").exists())
+                .andExpect(jsonPath("$.rejected.length()").value(0));
+
+        assertEquals(7, itemRepository.count());
+    }
+
+    @Test
+    void testCreateItemsInBatchWithInvalidItem() throws Exception {
+        String batchJson = "[" + loadFixture("valid_item.json") + "," + loadFixture("invalid_item.json") + "]";
+
+        mockMvc.perform(post("/api/items/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.accepted.length()").value(1))
+                .andExpect(jsonPath("$.rejected[0].index").value(1))
+                .andExpect(jsonPath("$.rejected[0].errors.email").value("Email does not have the expected format."));
+
+        assertEquals(6, itemRepository.count());
+    }
+
     @Test
     void testUpdateExistingItem() throws Exception {
         String updateJson = loadFixture("valid_update_item.json");
 
-        mockMvc.perform(put("/api/items/{id}", 1)
+        mockMvc.perform(put("/api/items/{id}", seeded.get(0).getId())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(updateJson))
                 .andExpect(status().isCreated())
-                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.id").value(seeded.get(0).getId()))
                 .andExpect(jsonPath("$.name").value("pNew"))
                 .andExpect(jsonPath("$.status").value("UPDATED"));
     }
@@ -110,7 +392,7 @@ public class ItemControllerTest {
     void testUpdateInvalidItem() throws Exception {
         String invalidUpdate = loadFixture("invalid_item.json");
 
-        mockMvc.perform(put("/api/items/{id}", 1)
+        mockMvc.perform(put("/api/items/{id}", seeded.get(0).getId())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(invalidUpdate))
                 .andExpect(status().isBadRequest())
@@ -129,27 +411,325 @@ public class ItemControllerTest {
                         .value("There is no item with the id 999"));
     }
 
+    @Test
+    void testConditionalGetOfItem() throws Exception {
+        Long id = seeded.get(0).getId();
+        String eTag = mockMvc.perform(get("/api/items/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(0))
+                .andExpect(header().string("ETag", "\"" + id + ".0\""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/items/{id}", id).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(put("/api/items/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_update_item.json")))
+                .andExpect(header().string("ETag", "\"" + id + ".1\""));
+
+        mockMvc.perform(get("/api/items/{id}", id).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("pNew"));
+    }
+
+    @Test
+    void testConditionalGetOfPage() throws Exception {
+        String eTag = mockMvc.perform(get("/api/items").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/items").param("limit", "2").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(put("/api/items/{id}", seeded.get(1).getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_update_item.json")))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/items").param("limit", "2").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)));
+    }
+
+    @Test
+    void testSparsePagesWithOtherFieldsHaveOtherETags() throws Exception {
+        String names = mockMvc.perform(get("/api/items").param("fields", "name").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // the same rows with other fields are another body, so the ETag of the names does not match them
+        mockMvc.perform(get("/api/items").param("fields", "email").param("limit", "2").header("If-None-Match", names))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(names)));
+        mockMvc.perform(get("/api/items").param("fields", "name").param("limit", "2").header("If-None-Match", names))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testUpdateWithIfMatch() throws Exception {
+        Long id = seeded.get(0).getId();
+        String body = loadFixture("valid_update_item.json");
+
+        mockMvc.perform(put("/api/items/{id}", id)
+                        .header("If-Match", "\"" + id + ".0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.version").value(1));
+
+        mockMvc.perform(put("/api/items/{id}", id)
+                        .header("If-Match", "\"" + id + ".0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error").value("The item with the id " + id + " was modified, its current version is 1"));
+    }
+
+    @Test
+    void testGetItemByIdIsCached() throws Exception {
+        Long id = seeded.get(0).getId();
+
+        mockMvc.perform(get("/api/items/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("p1"));
+        mockMvc.perform(get("/api/items/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("p1"));
+
+        mockMvc.perform(get("/api/admin/caches"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("items"))
+                .andExpect(jsonPath("$[0].hitCount", greaterThanOrEqualTo(1)))
+                .andExpect(jsonPath("$[0].missCount", greaterThanOrEqualTo(1)));
+    }
+
+    @Test
+    void testCachedItemIsRefreshedOnUpdateAndEvictedOnDelete() throws Exception {
+        Long id = seeded.get(0).getId();
+        mockMvc.perform(get("/api/items/{id}", id))
+                .andExpect(jsonPath("$.name").value("p1"));
+
+        mockMvc.perform(put("/api/items/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_update_item.json")))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/items/{id}", id))
+                .andExpect(jsonPath("$.name").value("pNew"));
+
+        mockMvc.perform(delete("/api/items/{id}", id))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/items/{id}", id))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testDeleteExistingItem() throws Exception {
-        mockMvc.perform(delete("/api/items/{id}", 1))
+        mockMvc.perform(delete("/api/items/{id}", seeded.get(0).getId()))
                 .andExpect(status().isNoContent());
     }
 
     @Test
     void testProcessItems() throws Exception {
-        MvcResult mvcResult = mockMvc.perform(get("/api/items/process"))
-                .andReturn();
+        String location = runProcessingJob("FULL");
 
-        assertTrue(mvcResult.getRequest().isAsyncStarted());
-
-        mockMvc.perform(asyncDispatch(mvcResult))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(5)))
-                .andExpect(jsonPath("$[*].status", everyItem(equalTo("PROCESSED"))));
+        mockMvc.perform(get(location))
+                .andExpect(jsonPath("$.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.total").value(5))
+                .andExpect(jsonPath("$.processed").value(5))
+                .andExpect(jsonPath("$.failed").value(0));
 
         List<Item> all = itemRepository.findAll();
         for (Item item : all) {
             assertEquals("PROCESSED", item.getStatus());
         }
     }
+
+    @Test
+    void testIncrementalProcessingOnlyTouchesChangedItems() throws Exception {
+        mockMvc.perform(get(runProcessingJob("INCREMENTAL")))
+                .andExpect(jsonPath("$.mode").value("INCREMENTAL"))
+                .andExpect(jsonPath("$.since").doesNotExist())
+                .andExpect(jsonPath("$.processed").value(5));
+
+        mockMvc.perform(put("/api/items/{id}", seeded.get(2).getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_update_item.json")))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get(runProcessingJob("INCREMENTAL")))
+                .andExpect(jsonPath("$.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.since").exists())
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.processed").value(1));
+        assertEquals("PROCESSED", itemRepository.findById(seeded.get(2).getId()).orElseThrow().getStatus());
+
+        mockMvc.perform(get(runProcessingJob("INCREMENTAL")))
+                .andExpect(jsonPath("$.total").value(0))
+                .andExpect(jsonPath("$.processed").value(0));
+    }
+
+    @Test
+    void testIncrementalProcessingPicksUpRowsWithoutModificationTime() throws Exception {
+        // GIVEN a first run, then a row inserted with plain SQL, which has no last_modified
+        mockMvc.perform(get(runProcessingJob("INCREMENTAL")))
+                .andExpect(jsonPath("$.processed").value(5));
+        jdbcTemplate.update("INSERT INTO item (id, name, description, status, email, version) VALUES (9999, 'sql', 'd', 'ADDED', 's@mail.com', 0)");
+
+        // WHEN the next incremental run starts THEN it processes that row as changed
+        mockMvc.perform(get(runProcessingJob("INCREMENTAL")))
+                .andExpect(jsonPath("$.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.processed").value(1));
+        assertEquals("PROCESSED", itemRepository.findById(9999L).orElseThrow().getStatus());
+    }
+
+    /**
+     * Starts a processing job and polls it until it is no longer running, returns the URL of the job.
+     */
+    private String runProcessingJob(String mode) throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/items/process").param("mode", mode))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.jobId").exists())
+                .andReturn();
+
+        String location = started.getResponse().getHeader("Location");
+        String state = "RUNNING";
+        for (int attempt = 0; attempt < 100 && state.equals("RUNNING"); attempt++) {
+            Thread.sleep(50);
+            String body = mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            state = objectMapper.readTree(body).get("state").asText();
+        }
+
+        return location;
+    }
+
+    @Test
+    void testSnapshotAndRestore() throws Exception {
+        // GIVEN a snapshot of the seeded items
+        mockMvc.perform(put("/api/items/{id}", seeded.get(1).getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_update_item.json")))
+                .andExpect(status().isCreated());
+        List<Item> before = itemRepository.findAll(Sort.by("id"));
+
+        mockMvc.perform(post("/api/admin/snapshot"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").value(5))
+                .andExpect(jsonPath("$.bytes").value(greaterThan(8)));
+
+        // WHEN the table is emptied and the snapshot restored
+        itemRepository.deleteAll();
+        cacheManager.getCache(CacheConfig.ITEMS_CACHE).clear();
+        assertEquals(5, snapshotService.restore().getItems());
+
+        // THEN every item is back with the same id, version and modification time, and new ids do not collide
+        assertEquals(before, itemRepository.findAll(Sort.by("id")));
+
+        mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(loadFixture("valid_item.json")))
+                .andExpect(status().isCreated());
+        assertEquals(6, itemRepository.count());
+    }
+
+    @Test
+    void testTruncatedSnapshotRestoresNothing() throws Exception {
+        // GIVEN a snapshot of the seeded items that lost its last bytes, restored one row per batch
+        snapshotService.snapshot();
+        Path file = snapshotProperties.getPath();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        int batchSize = snapshotProperties.getBatchSize();
+        snapshotProperties.setBatchSize(1);
+
+        // WHEN the table is emptied and the snapshot restored
+        itemRepository.deleteAll();
+        try {
+            assertThrows(IOException.class, () -> snapshotService.restore());
+        } finally {
+            snapshotProperties.setBatchSize(batchSize);
+        }
+
+        // THEN the items read before the broken one were rolled back with it
+        assertEquals(0, itemRepository.count());
+    }
+
+    @Test
+    void testSnapshotKeepsModificationTimesBefore1970() throws Exception {
+        // GIVEN an item last modified a fraction of a second before the epoch
+        Timestamp lastModified = Timestamp.valueOf("1969-12-31 23:59:59.123456");
+        Long id = seeded.get(0).getId();
+        jdbcTemplate.update("UPDATE item SET last_modified = ? WHERE id = ?", lastModified, id);
+
+        // WHEN it goes through a snapshot and a restore
+        snapshotService.snapshot();
+        itemRepository.deleteAll();
+        snapshotService.restore();
+
+        // THEN the time comes back to the microsecond
+        assertEquals(lastModified, jdbcTemplate.queryForObject(
+                "SELECT last_modified FROM item WHERE id = ?", Timestamp.class, id));
+    }
+
+    @Test
+    void testWriteBehindFlushWritesTheLatestState() throws Exception {
+        // GIVEN a write-behind buffer on the real database and two seeded items
+        WriteBehindProperties properties = new WriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setFlushInterval(Duration.ofHours(1));
+        ItemWriteBuffer buffer = new ItemWriteBuffer(jdbcTemplate, cacheManager, properties, new SimpleMeterRegistry());
+        Item first = seeded.get(0);
+        Item second = seeded.get(1);
+
+        // WHEN the first one is updated three times, the second one once but changed by another writer before the flush
+        for (int i = 1; i <= 3; i++) {
+            buffer.update(first.getId(), new Item(null, "write " + i, "d", "UPDATED", "w@mail.com"), null,
+                    () -> itemRepository.findById(first.getId()));
+        }
+        buffer.update(second.getId(), new Item(null, "buffered", "d", "UPDATED", "w@mail.com"), null,
+                () -> itemRepository.findById(second.getId()));
+        itemRepository.updateStatusByIds(List.of(second.getId()), "PROCESSED");
+        int written = buffer.flush();
+        buffer.close();
+
+        // THEN the latest state of both is in the database, the second one with the version the database computed
+        assertEquals(2, written);
+        Item firstRow = itemRepository.findById(first.getId()).orElseThrow();
+        assertEquals("write 3", firstRow.getName());
+        assertEquals(first.getVersion() + 3, firstRow.getVersion());
+        Item secondRow = itemRepository.findById(second.getId()).orElseThrow();
+        assertEquals("buffered", secondRow.getName());
+        assertEquals("UPDATED", secondRow.getStatus());
+        assertEquals(second.getVersion() + 2, secondRow.getVersion());
+    }
+
+    @Test
+    void testPrometheusScrapeEndpoint() throws Exception {
+        mockMvc.perform(get("/api/items/{id}", seeded.get(0).getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("executor_queued_tasks{application=\"internship\",name=\"dbExecutor\"")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds")))
+                .andExpect(content().string(containsString("item_processing_items_total")));
+    }
+
+    @Test
+    void testUnknownProcessingJob() throws Exception {
+        mockMvc.perform(get("/api/items/process/{jobId}", "missing"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("There is no processing job with the id missing"));
+
+        mockMvc.perform(delete("/api/items/process/{jobId}", "missing"))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -0,0 +1,263 @@
+package com.siemens.internship.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.siemens.internship.model.BatchCreateResult;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.service.ItemBatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LOAD TESTS for the HTTP API. They are tagged "load" and excluded from the normal build, run them with
+ *     mvn -P loadtest test [-Dload.rate=300 -Dload.duration=30 -Dload.warmup=5 -Dload.seed-items=10000 -Dload.scenarios=READ_HEAVY]
+ *
+ * The application is started on a random port with its real web server, seeded with copies of the item_seed.json fixture
+ * and driven with an open-model load (see LoadGenerator). Every scenario first runs a warm-up whose results are discarded,
+ * then the measured run; the report (throughput, p50/p99/p999 per endpoint) is logged and written to
+ * target/load-test/&lt;scenario&gt;-&lt;time&gt;.json.
+ */
+
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(locations = "classpath:application-test.properties",
+        properties = "spring.datasource.url=jdbc:h2:mem:loadtestdb;MODE=PostgreSQL")
+public class ItemLoadTest {
+    private static final String FIXTURE_PATH = "src/test/resources/fixtures/";
+    private static final Path REPORT_DIR = Paths.get("target", "load-test");
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    static final double RATE = Double.parseDouble(System.getProperty("load.rate", "200"));
+    static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration", 20));
+    static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup", 5));
+    static final int SEED_ITEMS = Integer.getInteger("load.seed-items", 10_000);
+    static final String SCENARIOS = System.getProperty("load.scenarios", "");
+
+    private static List<Long> ids;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ItemBatchService itemBatchService;
+
+    /**
+     * CRUD only uses the endpoints the reactive variant has too (ReactiveItemLoadTest), so both can be compared under it.
+     */
+    enum Scenario {
+        READ_HEAVY,
+        WRITE_HEAVY,
+        WITH_PROCESSING,
+        CRUD
+    }
+
+    @BeforeEach
+    void seed() throws IOException {
+        if (ids != null) {
+            return;
+        }
+
+        List<Item> fixture = objectMapper.readValue(Files.readString(Paths.get(FIXTURE_PATH + "item_seed.json")),
+                new TypeReference<List<Item>>() {});
+        List<Long> seeded = new ArrayList<>(SEED_ITEMS);
+        List<Item> batch = new ArrayList<>();
+        for (int i = 0; i < SEED_ITEMS; i++) {
+            Item template = fixture.get(i % fixture.size());
+            batch.add(new Item(null, template.getName() + "-" + i, template.getDescription(), template.getStatus(),
+                    template.getEmail()));
+            if (batch.size() == 1000 || i == SEED_ITEMS - 1) {
+                BatchCreateResult result = itemBatchService.createItems(batch);
+                result.getAccepted().forEach(accepted -> seeded.add(accepted.getId()));
+                batch.clear();
+            }
+        }
+
+        ids = seeded;
+        log.info("Seeded {} items", ids.size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Scenario.class)
+    void load(Scenario scenario) throws Exception {
+        if (!SCENARIOS.isBlank() && !List.of(SCENARIOS.split(",")).contains(scenario.name())) {
+            log.info("Skipping {}", scenario);
+            return;
+        }
+
+        String baseUrl = "http://localhost:" + port;
+        LoadGenerator generator = new LoadGenerator(2000, Duration.ofSeconds(10));
+        Supplier<LoadGenerator.LoadRequest> requests = requests(scenario, baseUrl, ids);
+        String serverThreads = "http-nio-auto-";
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong processingRuns = new AtomicLong();
+        Thread processing = null;
+        if (scenario == Scenario.WITH_PROCESSING) {
+            processing = new Thread(() -> processContinuously(baseUrl, running, processingRuns), "load-processing");
+            processing.start();
+        }
+
+        try {
+            generator.run(scenario.name(), baseUrl, RATE, WARMUP, requests, processingRuns::get, serverThreads);
+            LoadReport report = generator.run(scenario.name(), baseUrl, RATE, DURATION, requests, processingRuns::get,
+                    serverThreads);
+            write(report);
+
+            LoadReport.EndpointStats total = report.getTotal();
+            assertTrue(total.getRequests() > 0, "no request was answered");
+            assertTrue(total.getErrors() <= total.getRequests() / 100, "more than 1% of the requests failed");
+        } finally {
+            running.set(false);
+            if (processing != null) {
+                processing.join();
+            }
+        }
+    }
+
+    static Supplier<LoadGenerator.LoadRequest> requests(Scenario scenario, String baseUrl, List<Long> ids) {
+        return () -> {
+            int dice = ThreadLocalRandom.current().nextInt(100);
+            if (scenario == Scenario.CRUD) {
+                if (dice < 60) {
+                    return get(baseUrl, "GET /api/items/{id}", "/api/items/" + randomId(ids));
+                } else if (dice < 80) {
+                    return get(baseUrl, "GET /api/items", "/api/items?limit=100&after=" + randomId(ids));
+                } else if (dice < 90) {
+                    return get(baseUrl, "GET /api/items?status", "/api/items?status=ADDED&limit=50&after=" + randomId(ids));
+                }
+                return put(baseUrl, ids);
+            }
+            if (scenario == Scenario.WRITE_HEAVY) {
+                if (dice < 40) {
+                    return put(baseUrl, ids);
+                } else if (dice < 70) {
+                    return post(baseUrl, "POST /api/items", "/api/items", itemJson("load"));
+                } else if (dice < 80) {
+                    return post(baseUrl, "POST /api/items/batch", "/api/items/batch", batchJson());
+                }
+                return get(baseUrl, "GET /api/items/{id}", "/api/items/" + randomId(ids));
+            }
+
+            if (dice < 70) {
+                return get(baseUrl, "GET /api/items/{id}", "/api/items/" + randomId(ids));
+            } else if (dice < 85) {
+                return get(baseUrl, "GET /api/items", "/api/items?limit=100&after=" + randomId(ids));
+            } else if (dice < 95) {
+                return get(baseUrl, "GET /api/items?status", "/api/items?status=ADDED&limit=50&after=" + randomId(ids));
+            }
+            return get(baseUrl, "GET /api/items/stats", "/api/items/stats");
+        };
+    }
+
+    private static long randomId(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private static String itemJson(String name) {
+        return "{\"name\":\"" + name + "\",\"description\":\"written by the load test\",\"status\":\"UPDATED\"," +
+                "\"email\":\"load@mail.com\"}";
+    }
+
+    private static String batchJson() {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(itemJson("batch-" + i));
+        }
+        return "[" + String.join(",", items) + "]";
+    }
+
+    private static LoadGenerator.LoadRequest get(String baseUrl, String endpoint, String path) {
+        return new LoadGenerator.LoadRequest(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build());
+    }
+
+    private static LoadGenerator.LoadRequest post(String baseUrl, String endpoint, String path, String body) {
+        return new LoadGenerator.LoadRequest(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+    }
+
+    private static LoadGenerator.LoadRequest put(String baseUrl, List<Long> ids) {
+        return new LoadGenerator.LoadRequest("PUT /api/items/{id}", HttpRequest.newBuilder(URI.create(baseUrl + "/api/items/" + randomId(ids)))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(itemJson("updated")))
+                .build());
+    }
+
+    /**
+     * Keeps a full processing job running for the whole scenario: starts one, polls it until it is done and starts the next.
+     */
+    private static void processContinuously(String baseUrl, AtomicBoolean running, AtomicLong runs) {
+        HttpClient client = HttpClient.newHttpClient();
+        try {
+            while (running.get()) {
+                HttpResponse<String> started = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/items/process?mode=FULL"))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                String location = started.headers().firstValue("Location").orElse(null);
+                if (location == null) {
+                    Thread.sleep(100);
+                    continue;
+                }
+
+                String state = "RUNNING";
+                while (running.get() && state.equals("RUNNING")) {
+                    Thread.sleep(100);
+                    String body = client.send(HttpRequest.newBuilder(URI.create(baseUrl + location)).GET().build(),
+                            HttpResponse.BodyHandlers.ofString()).body();
+                    state = objectMapper.readTree(body).get("state").asText();
+                }
+                runs.incrementAndGet();
+            }
+        } catch (IOException e) {
+            log.error("Background processing stopped", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void write(LoadReport report) throws IOException {
+        Files.createDirectories(REPORT_DIR);
+        String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = REPORT_DIR.resolve(report.getScenario().toLowerCase() + "-" + time + ".json");
+        objectMapper.writeValue(file.toFile(), report);
+
+        log.info("{} at {} req/s: {} requests, {} errors, {} dropped, {} server threads, {} threads at peak -> {}",
+                report.getScenario(), report.getTargetRate(), report.getTotal().getRequests(), report.getTotal().getErrors(),
+                report.getTotal().getDropped(), report.getServerThreads(), report.getPeakThreads(), file);
+        for (LoadReport.EndpointStats stats : report.getEndpoints()) {
+            log.info(String.format("  %-24s %8d req %9.1f req/s  p50 %8.2f ms  p99 %8.2f ms  p999 %8.2f ms  max %8.2f ms  errors %d/%d",
+                    stats.getEndpoint(), stats.getRequests(), stats.getThroughput(), stats.getP50(), stats.getP99(),
+                    stats.getP999(), stats.getMax(), stats.getErrors(), stats.getClientErrors()));
+        }
+    }
+}
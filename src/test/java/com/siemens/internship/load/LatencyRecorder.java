@@ -0,0 +1,58 @@
+package com.siemens.internship.load;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies of one endpoint. Every sample is kept, so the percentiles are exact;
+ * a load test run produces at most a few hundred thousand of them.
+ */
+
+class LatencyRecorder {
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private long clientErrors;
+    private long dropped;
+
+    /**
+     * Status 0 means the request failed without a response (timeout, connection refused).
+     */
+    synchronized void record(long latencyNanos, int status) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+
+        if (status == 0 || status >= 500) {
+            errors++;
+        } else if (status >= 400) {
+            clientErrors++;
+        }
+    }
+
+    synchronized void drop() {
+        dropped++;
+    }
+
+    synchronized LoadReport.EndpointStats toStats(String endpoint, double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        return new LoadReport.EndpointStats(endpoint, count, errors, clientErrors, dropped,
+                seconds > 0 ? count / seconds : 0,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0 : millis(sorted[sorted.length - 1]));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return millis(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,128 @@
+package com.siemens.internship.load;
+
+import lombok.Value;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load generator: requests are started at a fixed rate, whether or not the previous ones were answered,
+ * the way independent clients behave. A closed loop of "send, wait, send" would slow down together with the server
+ * and hide its queueing delay.
+ *
+ * The requests are sent with the asynchronous HttpClient, so one scheduling thread is enough for thousands of requests
+ * in flight. At most "maxOutstanding" requests wait for a response at the same time, the ones above that are counted
+ * as dropped instead of piling up in memory.
+ * The requests are spread over CLIENTS client ids (X-Client-Id header), so the per-client rate limits of the admission
+ * control see many moderate clients instead of a single one sending the whole load.
+ */
+
+public class LoadGenerator {
+    private static final int CLIENTS = 100;
+
+    private final HttpClient client;
+    private final int maxOutstanding;
+    private final Duration requestTimeout;
+
+    public LoadGenerator(int maxOutstanding, Duration requestTimeout) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(requestTimeout)
+                .build();
+        this.maxOutstanding = maxOutstanding;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * One request to send: the endpoint name used to group the results (e.g. "GET /api/items/{id}") and the request.
+     */
+    @Value
+    public static class LoadRequest {
+        String endpoint;
+
+        HttpRequest request;
+    }
+
+    /**
+     * Sends the requests produced by the supplier at "ratePerSecond" for "duration", waits for the last answers
+     * and returns the statistics per endpoint and in total. The threads whose name starts with serverThreadPrefix
+     * are counted as the request threads of the server.
+     */
+    public LoadReport run(String scenario, String target, double ratePerSecond, Duration duration,
+                          Supplier<LoadRequest> requests, Supplier<Long> processingRuns, String serverThreadPrefix)
+            throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+        LatencyRecorder total = new LatencyRecorder();
+        AtomicInteger outstanding = new AtomicInteger();
+
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        long interval = (long) (1_000_000_000L / ratePerSecond);
+        long end = start + duration.toNanos();
+
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * interval;
+            if (scheduled >= end) {
+                break;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            LoadRequest next = requests.get();
+            LatencyRecorder recorder = recorders.computeIfAbsent(next.getEndpoint(), endpoint -> new LatencyRecorder());
+            if (outstanding.get() >= maxOutstanding) {
+                recorder.drop();
+                total.drop();
+                continue;
+            }
+
+            outstanding.incrementAndGet();
+            HttpRequest request = HttpRequest.newBuilder(next.getRequest(), (name, value) -> true)
+                    .timeout(requestTimeout)
+                    .header("X-Client-Id", "load-client-" + (i % CLIENTS))
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long latency = System.nanoTime() - scheduled;
+                        int status = response == null ? 0 : response.statusCode();
+                        recorder.record(latency, status);
+                        total.record(latency, status);
+                        outstanding.decrementAndGet();
+                    });
+        }
+
+        long drainDeadline = System.nanoTime() + requestTimeout.toNanos();
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+
+        double seconds = duration.toNanos() / 1e9;
+        List<LoadReport.EndpointStats> endpoints = new ArrayList<>();
+        recorders.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> endpoints.add(entry.getValue().toStats(entry.getKey(), seconds)));
+
+        int serverThreads = (int) Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(serverThreadPrefix))
+                .count();
+
+        return new LoadReport(scenario, target, ratePerSecond, seconds, startedAt.toString(), processingRuns.get(),
+                serverThreads, threads.getPeakThreadCount(), total.toStats("total", seconds), endpoints);
+    }
+}
@@ -0,0 +1,72 @@
+package com.siemens.internship.load;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Result of one load test run, written as JSON to target/load-test so runs can be compared.
+ * Latencies are in milliseconds and measured from the moment a request was scheduled to start,
+ * so a server that falls behind shows up in the percentiles instead of silently lowering the load.
+ */
+
+@Value
+public class LoadReport {
+    String scenario;
+
+    String target;
+
+    double targetRate;
+
+    double durationSeconds;
+
+    String startedAt;
+
+    long processingRuns;
+
+    /**
+     * Request threads of the server (Tomcat workers or Netty event loops) alive at the end of the run
+     */
+    int serverThreads;
+
+    /**
+     * Most threads alive at the same time in the JVM during the run, the load generator included
+     */
+    int peakThreads;
+
+    EndpointStats total;
+
+    List<EndpointStats> endpoints;
+
+    @Value
+    public static class EndpointStats {
+        String endpoint;
+
+        long requests;
+
+        /**
+         * 5xx responses and requests that got no response at all
+         */
+        long errors;
+
+        /**
+         * 4xx responses, e.g. 409 when a write raced with a processing job
+         */
+        long clientErrors;
+
+        /**
+         * Requests not sent because too many were already waiting for a response
+         */
+        long dropped;
+
+        double throughput;
+
+        double p50;
+
+        double p99;
+
+        double p999;
+
+        double max;
+    }
+}
@@ -0,0 +1,75 @@
+package com.siemens.internship.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UNIT TESTS for the AIMD window used by the processing engine, following the GIVEN-WHEN-THEN pattern.
+ */
+
+public class AdaptiveConcurrencyLimiterTest {
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void testLimitGrowsWhileLatencyIsLow() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, TARGET, 0.5);
+
+        // when - 20 fast tasks
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire();
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(10), true);
+        }
+
+        // then
+        assertTrue(limiter.getLimit() > 2);
+        assertTrue(limiter.getLimit() <= 10);
+    }
+
+    @Test
+    void testLimitDropsOnSlowOrFailedTasks() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 2, 10, TARGET, 0.5);
+
+        // when
+        limiter.acquire();
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(500), true);
+
+        // then
+        assertEquals(4, limiter.getLimit());
+
+        // when - failures never push it under the minimum
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.release(0, false);
+        }
+
+        // then
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testAcquireWaitsInsteadOfRejecting() throws InterruptedException {
+        // given - a window of one task, already taken
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, TARGET, 0.5);
+        limiter.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        // when
+        Thread waiting = new Thread(() -> {
+            limiter.acquire();
+            acquired.countDown();
+        });
+        waiting.start();
+
+        // then - the second task only starts after the first one is released
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        limiter.release(0, true);
+        assertTrue(acquired.await(1, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getInFlight());
+    }
+}
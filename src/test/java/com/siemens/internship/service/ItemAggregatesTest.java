@@ -0,0 +1,204 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.AggregateProperties;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemStatistics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UNIT TESTS for the in-memory item aggregates, following the GIVEN-WHEN-THEN pattern.
+ * The table is a plain in-memory H2 one, the scan of a rebuild can run a change in the middle of it and the GROUP BY
+ * of a reconciliation one after each run.
+ */
+
+public class ItemAggregatesTest {
+    private SimpleMeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private ItemAggregates aggregates;
+    private Runnable duringScan;
+    private Runnable duringCount;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:aggregates;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(PreparedStatementCreator creator, RowCallbackHandler handler) {
+                super.query(creator, (RowCallbackHandler) rs -> {
+                    handler.processRow(rs);
+                    if (duringScan != null) {
+                        duringScan.run();
+                        duringScan = null;
+                    }
+                });
+            }
+
+            @Override
+            public void query(String sql, RowCallbackHandler handler) {
+                super.query(sql, handler);
+                if (duringCount != null) {
+                    duringCount.run();
+                }
+            }
+        };
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS item (id BIGINT PRIMARY KEY, status VARCHAR(255), email VARCHAR(255))");
+        jdbcTemplate.update("DELETE FROM item");
+        insert(1L, "ADDED", "a@mail.com");
+        insert(2L, "ADDED", "b@MAIL.com");
+        insert(3L, null, "c@other.com");
+
+        meterRegistry = new SimpleMeterRegistry();
+        aggregates = new ItemAggregates(jdbcTemplate, new AggregateProperties(), meterRegistry);
+        aggregates.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregates.close();
+    }
+
+    private void insert(Long id, String status, String email) {
+        jdbcTemplate.update("INSERT INTO item (id, status, email) VALUES (?, ?, ?)", id, status, email);
+    }
+
+    @Test
+    void testRebuildCountsTheTable() {
+        // when
+        ItemStatistics statistics = aggregates.getStatistics();
+
+        // then - domains are case-insensitive, a missing status has its own key
+        assertEquals(3, statistics.getTotal());
+        assertEquals(Map.of("ADDED", 2L, ItemStatistics.NO_STATUS, 1L), statistics.getByStatus());
+        assertEquals(List.of("mail.com", "other.com"), List.copyOf(statistics.getTopEmailDomains().keySet()));
+        assertEquals(2L, statistics.getTopEmailDomains().get("mail.com"));
+        assertTrue(aggregates.reconcile());
+    }
+
+    @Test
+    void testChangesAreAppliedIncrementally() {
+        // when
+        aggregates.put(new Item(4L, "p4", "d", "ADDED", "d@other.com"));
+        aggregates.put(new Item(1L, "p1", "d", "UPDATED", "a@other.com"));
+        aggregates.remove(2L);
+        aggregates.setStatus(List.of(3L, 4L, 99L), "PROCESSED");
+
+        // then - 99 was never known, so it is not counted
+        ItemStatistics statistics = aggregates.getStatistics();
+        assertEquals(3, statistics.getTotal());
+        assertEquals(Map.of("UPDATED", 1L, "PROCESSED", 2L), statistics.getByStatus());
+        assertEquals(Map.of("other.com", 3L), statistics.getTopEmailDomains());
+    }
+
+    @Test
+    void testChangeDuringTheScanIsReplayedOverTheRebuild() {
+        // given - item 3 is deleted after the scan read item 1, but before it reached item 3
+        duringScan = () -> {
+            jdbcTemplate.update("DELETE FROM item WHERE id = 3");
+            aggregates.remove(3L);
+        };
+
+        // when
+        aggregates.rebuild();
+
+        // then
+        assertEquals(Map.of("ADDED", 2L), aggregates.getStatistics().getByStatus());
+        assertTrue(aggregates.reconcile());
+    }
+
+    @Test
+    void testDriftIsRebuiltOnTheSecondReconciliation() {
+        // given - a row the aggregates never heard of
+        insert(5L, "ADDED", "e@mail.com");
+
+        // when
+        boolean first = aggregates.reconcile();
+        long totalAfterFirst = aggregates.getStatistics().getTotal();
+        boolean second = aggregates.reconcile();
+
+        // then - one drift could be a change in flight, the second one rebuilds
+        assertFalse(first);
+        assertEquals(3, totalAfterFirst);
+        assertFalse(second);
+        assertEquals(4, aggregates.getStatistics().getTotal());
+        assertTrue(aggregates.reconcile());
+        assertEquals(2, meterRegistry.get("item.aggregates.reconciliations").tag("outcome", "drift").counter().count());
+    }
+
+    @Test
+    void testReconciliationRetriesAfterAChangeDuringTheCount() {
+        // given - one item is created while the first GROUP BY runs
+        duringCount = () -> {
+            duringCount = null;
+            insert(4L, "ADDED", "d@mail.com");
+            aggregates.put(new Item(4L, "p4", "d", "ADDED", "d@mail.com"));
+        };
+
+        // when
+        boolean consistent = aggregates.reconcile();
+
+        // then - the second attempt compared a quiet moment
+        assertTrue(consistent);
+        assertEquals(1, meterRegistry.get("item.aggregates.reconciliations").tag("outcome", "consistent").counter().count());
+        assertEquals(0, meterRegistry.get("item.aggregates.reconciliations").tag("outcome", "skipped").counter().count());
+    }
+
+    @Test
+    void testSteadyWritesRebuildAfterSkippedReconciliations() {
+        // given - a row the aggregates never heard of, and an item created during every GROUP BY
+        insert(5L, "ADDED", "e@mail.com");
+        long[] nextId = {100};
+        duringCount = () -> {
+            long id = nextId[0]++;
+            insert(id, "ADDED", id + "@mail.com");
+            aggregates.put(new Item(id, "p", "d", "ADDED", id + "@mail.com"));
+        };
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            assertTrue(aggregates.reconcile());
+        }
+
+        // then - no comparison was possible, so the fifth skip rebuilt the aggregates and found the unknown row
+        assertEquals(5, meterRegistry.get("item.aggregates.reconciliations").tag("outcome", "skipped").counter().count());
+        assertEquals(2, meterRegistry.get("item.aggregates.rebuilds").counter().count());
+        duringCount = null;
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM item", Long.class), aggregates.getStatistics().getTotal());
+        assertTrue(aggregates.reconcile());
+    }
+
+    @Test
+    void testHeavyHittersKeepTheLargestDomains() {
+        // given - a small sketch with room for 3 candidates and many one-item domains in between
+        HeavyHitters domains = new HeavyHitters(3, 64, 4);
+        for (int i = 0; i < 200; i++) {
+            domains.add("rare" + i + ".com", 1);
+            if (i % 2 == 0) {
+                domains.add("big.com", 1);
+            }
+            if (i % 4 == 0) {
+                domains.add("medium.com", 1);
+            }
+        }
+
+        // when
+        domains.add("big.com", -10);
+        Map<String, Long> top = domains.top();
+
+        // then - estimates are never below the real count
+        assertEquals(List.of("big.com", "medium.com"), List.copyOf(top.keySet()).subList(0, 2));
+        assertTrue(top.get("big.com") >= 90);
+        assertTrue(domains.estimate("medium.com") >= 50);
+    }
+}
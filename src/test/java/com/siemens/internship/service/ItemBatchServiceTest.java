@@ -0,0 +1,99 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.BatchProperties;
+import com.siemens.internship.config.ChangeFeedProperties;
+import com.siemens.internship.model.BatchCreateResult;
+import com.siemens.internship.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UNIT TESTS for the bulk create service, following the same GIVEN-WHEN-THEN pattern.
+ * The entity manager is mocked and assigns the ids the way the sequence would on persist.
+ */
+
+public class ItemBatchServiceTest {
+    @Mock
+    private EntityManager entityManager;
+
+    private BatchProperties properties;
+    private ItemBatchService itemBatchService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new BatchProperties();
+        itemBatchService = new ItemBatchService(entityManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), properties, new ItemSearchIndex(null),
+                new ItemChangeFeed(new ChangeFeedProperties(), new SimpleMeterRegistry()), mock(ItemAggregates.class));
+
+        AtomicLong sequence = new AtomicLong(100);
+        doAnswer(inv -> {
+            inv.<Item>getArgument(0).setId(sequence.incrementAndGet());
+            return null;
+        }).when(entityManager).persist(any(Item.class));
+    }
+
+    @Test
+    void testCreateValidItems() {
+        // given
+        List<Item> items = List.of(new Item(null, "p1", "d1", "ADDED", "a@mail.com"),
+                                   new Item(null, "p2", "d2", "ADDED", "b@mail.com"));
+
+        // when
+        BatchCreateResult result = itemBatchService.createItems(items);
+
+        // then
+        assertEquals(2, result.getAccepted().size());
+        assertTrue(result.getRejected().isEmpty());
+        assertEquals(0, result.getAccepted().get(0).getIndex());
+        assertEquals(101L, result.getAccepted().get(0).getId());
+        verify(entityManager, times(2)).persist(any(Item.class));
+    }
+
+    @Test
+    void testRejectInvalidItems() {
+        // given
+        List<Item> items = List.of(new Item(null, "p1", "d1", "ADDED", "a@mail.com"),
+                                   new Item(null, "p2", "d2", "ADDED", "not-an-email"));
+
+        // when
+        BatchCreateResult result = itemBatchService.createItems(items);
+
+        // then
+        assertEquals(1, result.getAccepted().size());
+        assertEquals(1, result.getRejected().size());
+        assertEquals(1, result.getRejected().get(0).getIndex());
+        assertEquals("Email does not have the expected format.", result.getRejected().get(0).getErrors().get("email"));
+        verify(entityManager, times(1)).persist(any(Item.class));
+    }
+
+    @Test
+    void testFlushEveryBatch() {
+        // given
+        properties.setFlushSize(2);
+        List<Item> items = List.of(new Item(null, "p1", "d1", "ADDED", "a@mail.com"),
+                                   new Item(null, "p2", "d2", "ADDED", "b@mail.com"),
+                                   new Item(null, "p3", "d3", "ADDED", "c@mail.com"),
+                                   new Item(null, "p4", "d4", "ADDED", "d@mail.com"),
+                                   new Item(null, "p5", "d5", "ADDED", "e@mail.com"));
+
+        // when
+        itemBatchService.createItems(items);
+
+        // then
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+    }
+}
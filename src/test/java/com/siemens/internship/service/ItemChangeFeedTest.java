@@ -0,0 +1,231 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ChangeFeedProperties;
+import com.siemens.internship.config.exception.ChangeFeedExpiredException;
+import com.siemens.internship.config.exception.TooManySubscribersException;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemChangeEvent;
+import com.siemens.internship.model.ItemChangeType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UNIT TESTS for the in-memory change feed, following the GIVEN-WHEN-THEN pattern.
+ */
+
+public class ItemChangeFeedTest {
+    private SimpleMeterRegistry meterRegistry;
+    private ItemChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        ChangeFeedProperties properties = new ChangeFeedProperties();
+        properties.setRetainedEvents(5);
+        properties.setRetainedIds(20);
+        properties.setSubscriberBuffer(3);
+        properties.setMaxSubscribers(2);
+        meterRegistry = new SimpleMeterRegistry();
+        feed = new ItemChangeFeed(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+
+    private static Item item(long id) {
+        return new Item(id, "p" + id, "desc", "ADDED", "u" + id + "@mail.com");
+    }
+
+    /**
+     * Listener collecting the events, which can wait until it received a given number of them.
+     */
+    private static final class Collector implements ItemChangeFeed.Listener {
+        private final List<ItemChangeEvent> events = new CopyOnWriteArrayList<>();
+        private final AtomicLong overflowedAfter = new AtomicLong(-1);
+
+        @Override
+        public void onEvent(ItemChangeEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onOverflow(long lastSequence) {
+            overflowedAfter.set(lastSequence);
+        }
+
+        List<Long> awaitSequences(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return events.stream().map(ItemChangeEvent::getSequence).toList();
+        }
+    }
+
+    @Test
+    void testSubscriberGetsNewEventsInOrder() throws Exception {
+        // given
+        feed.publish(ItemChangeType.CREATED, item(1));
+        Collector collector = new Collector();
+        feed.subscribe(null, collector);
+
+        // when
+        feed.publish(ItemChangeType.UPDATED, item(1));
+        feed.publish(ItemChangeType.PROCESSED, List.of(1L, 2L));
+        feed.publish(ItemChangeType.DELETED, List.of(1L));
+
+        // then - the event from before the subscription is not sent
+        assertEquals(List.of(2L, 3L, 4L), collector.awaitSequences(3));
+        assertEquals(ItemChangeType.UPDATED, collector.events.get(0).getType());
+        assertEquals("p1", collector.events.get(0).getItem().getName());
+        assertArrayEquals(new long[]{1L, 2L}, collector.events.get(1).getIds());
+        assertNull(collector.events.get(1).getItem());
+    }
+
+    @Test
+    void testSubscriberResumesFromRetainedEvents() throws Exception {
+        // given - 7 events, only the last 5 (3..7) are retained
+        for (long id = 1; id <= 7; id++) {
+            feed.publish(ItemChangeType.CREATED, item(id));
+        }
+
+        // when
+        Collector collector = new Collector();
+        feed.subscribe(4L, collector);
+        feed.publish(ItemChangeType.DELETED, List.of(1L));
+
+        // then
+        assertEquals(List.of(5L, 6L, 7L, 8L), collector.awaitSequences(4));
+        Collector fromOldest = new Collector();
+        feed.subscribe(3L, fromOldest);
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L), fromOldest.awaitSequences(5));
+    }
+
+    @Test
+    void testLargeChunksAreDroppedByTheirNumberOfIds() throws Exception {
+        // given - 20 ids may be retained, the events hold 1 + 8 + 8 + 8
+        feed.publish(ItemChangeType.CREATED, item(1));
+        for (long chunk = 0; chunk < 3; chunk++) {
+            List<Long> ids = new ArrayList<>();
+            for (long id = 1; id <= 8; id++) {
+                ids.add(chunk * 8 + id);
+            }
+            feed.publish(ItemChangeType.PROCESSED, ids);
+        }
+
+        // then - only the last two chunks are retained, though the ring has room for 5 events
+        assertThrows(ChangeFeedExpiredException.class, () -> feed.subscribe(1L, new Collector()));
+        Collector collector = new Collector();
+        feed.subscribe(2L, collector);
+        assertEquals(List.of(3L, 4L), collector.awaitSequences(2));
+    }
+
+    @Test
+    void testResumingFromAnUnknownSequenceFails() {
+        // given
+        for (long id = 1; id <= 7; id++) {
+            feed.publish(ItemChangeType.CREATED, item(id));
+        }
+
+        // then - event 2 was dropped from the ring, event 8 does not exist yet (e.g. a client from before a restart)
+        assertThrows(ChangeFeedExpiredException.class, () -> feed.subscribe(1L, new Collector()));
+        assertThrows(ChangeFeedExpiredException.class, () -> feed.subscribe(8L, new Collector()));
+    }
+
+    @Test
+    void testSubscribersAboveTheLimitAreRejected() throws Exception {
+        // given - as many subscribers as allowed
+        ItemChangeFeed.Subscription first = feed.subscribe(null, new Collector());
+        feed.subscribe(null, new Collector());
+
+        // then - the next one is turned away until a place is free again
+        assertThrows(TooManySubscribersException.class, () -> feed.subscribe(null, new Collector()));
+        assertEquals(1.0, meterRegistry.get("item.changes.rejected").counter().count());
+        first.close();
+        Collector collector = new Collector();
+        feed.subscribe(null, collector);
+        feed.publish(ItemChangeType.CREATED, item(1));
+        assertEquals(List.of(1L), collector.awaitSequences(1));
+    }
+
+    @Test
+    void testSlowSubscriberIsDisconnectedWithoutBlockingPublishers() throws Exception {
+        // given - a subscriber stuck on its first event, next to a fast one
+        CountDownLatch stuck = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong overflowedAfter = new AtomicLong(-1);
+        feed.subscribe(null, new ItemChangeFeed.Listener() {
+            @Override
+            public void onEvent(ItemChangeEvent event) throws InterruptedException {
+                stuck.countDown();
+                release.await();
+            }
+
+            @Override
+            public void onOverflow(long lastSequence) {
+                overflowedAfter.set(lastSequence);
+            }
+        });
+        Collector fast = new Collector();
+        feed.subscribe(null, fast);
+
+        // when - far more events than its buffer of 3, paced by the fast subscriber
+        feed.publish(ItemChangeType.CREATED, item(1));
+        assertTrue(stuck.await(5, TimeUnit.SECONDS));
+        for (long id = 2; id <= 50; id++) {
+            feed.publish(ItemChangeType.CREATED, item(id));
+            assertEquals(id, fast.awaitSequences((int) id).size());
+        }
+
+        // then - the publishers never waited for the stuck one, which is told where to resume once it wakes up
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (overflowedAfter.get() < 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1L, overflowedAfter.get());
+        assertEquals(1.0, meterRegistry.get("item.changes.overflows").counter().count());
+        assertEquals(1.0, meterRegistry.get("item.changes.subscribers").gauge().value());
+    }
+
+    @Test
+    void testFailingSubscriberIsRemoved() throws Exception {
+        // given
+        CountDownLatch failed = new CountDownLatch(1);
+        feed.subscribe(null, new ItemChangeFeed.Listener() {
+            @Override
+            public void onEvent(ItemChangeEvent event) throws Exception {
+                failed.countDown();
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void onOverflow(long lastSequence) {
+            }
+        });
+
+        // when
+        feed.publish(ItemChangeType.CREATED, item(1));
+
+        // then
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("item.changes.subscribers").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0.0, meterRegistry.get("item.changes.subscribers").gauge().value());
+    }
+}
@@ -0,0 +1,87 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.model.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UNIT TESTS for the inverted index behind the search endpoint, following the GIVEN-WHEN-THEN pattern.
+ */
+
+public class ItemSearchIndexTest {
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ItemSearchIndex(null);
+        index.put(new Item(1L, "Red chair", "A comfortable chair for the office", "ADDED", "a@mail.com"));
+        index.put(new Item(2L, "Blue table", "Goes well with a red chair", "ADDED", "b@mail.com"));
+        index.put(new Item(3L, "Red lamp", "Bright", "ADDED", "c@mail.com"));
+    }
+
+    private static List<Long> ids(List<ItemSearchIndex.Match> matches) {
+        return matches.stream().map(ItemSearchIndex.Match::getId).toList();
+    }
+
+    @Test
+    void testOnlyItemsWithEveryTermMatch() {
+        // when
+        List<ItemSearchIndex.Match> matches = index.search("RED, chair!", 10);
+
+        // then - case and punctuation do not matter, the lamp has no "chair"
+        assertEquals(List.of(1L, 2L), ids(matches));
+        assertTrue(index.search("red sofa", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testNameWeighsMoreThanDescription() {
+        // when
+        List<ItemSearchIndex.Match> matches = index.search("table chair", 10);
+
+        // then - only item 2 has both, "chair" in the name beats "chair" in the description
+        assertEquals(List.of(2L), ids(matches));
+        assertEquals(List.of(1L, 2L), ids(index.search("chair", 10)));
+        assertTrue(index.search("chair", 10).get(0).getScore() > index.search("chair", 10).get(1).getScore());
+    }
+
+    @Test
+    void testLimitKeepsTheBestMatches() {
+        // when
+        List<ItemSearchIndex.Match> matches = index.search("red", 2);
+
+        // then - ties are broken by the lower id
+        assertEquals(2, matches.size());
+        assertEquals(List.of(1L, 3L), ids(matches));
+    }
+
+    @Test
+    void testUpdatesAndDeletesChangeTheResults() {
+        // when
+        index.put(new Item(3L, "Green lamp", "Bright chair light", "UPDATED", "c@mail.com"));
+        index.remove(1L);
+
+        // then
+        assertEquals(List.of(2L), ids(index.search("red", 10)));
+        assertEquals(List.of(2L, 3L), ids(index.search("chair", 10)));
+        assertEquals(List.of(3L), ids(index.search("green", 10)));
+        assertTrue(index.search("comfortable", 10).isEmpty());
+    }
+
+    @Test
+    void testIntersectionOfLongPostingLists() {
+        // given - "common" in every item, "even" in every second one, "rare" in one
+        for (long id = 10; id < 10_010; id++) {
+            index.put(new Item(id, "common" + (id % 2 == 0 ? " even" : ""), id == 5_000 ? "rare" : "", "ADDED", "x@mail.com"));
+        }
+
+        // then
+        assertEquals(List.of(5_000L), ids(index.search("rare common even", 10)));
+        assertEquals(5_000, index.search("common even", 10_000).size());
+        assertTrue(index.search("rare odd", 10).isEmpty());
+    }
+}
@@ -1,18 +1,57 @@
 package com.siemens.internship.service;
 
+import com.siemens.internship.config.AggregateProperties;
 import com.siemens.internship.config.AsyncConfig;
+import com.siemens.internship.config.BulkheadExecutor;
+import com.siemens.internship.config.CacheConfig;
+import com.siemens.internship.config.ChangeFeedProperties;
+import com.siemens.internship.config.ExecutorProperties;
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.config.WriteBehindProperties;
 import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.config.exception.PreconditionFailedException;
+import com.siemens.internship.config.exception.UnknownFieldException;
 import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemChangeEvent;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.model.ItemStatistics;
+import com.siemens.internship.model.ProcessingJobState;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.model.ProcessingMode;
+import com.siemens.internship.model.ProcessingWatermark;
+import com.siemens.internship.repository.ItemChange;
 import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.ProcessingWatermarkRepository;
+import com.siemens.internship.repository.StatusCount;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,7 +65,28 @@ public class ItemServiceTest {
     @Mock
     private ItemRepository itemRepository;
 
-    private Executor executor;
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ProcessingWatermarkRepository watermarkRepository;
+
+    @Mock
+    private PartitionCoordinator partitionCoordinator;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> batchRows;
+
+    private BulkheadExecutor dbExecutor;
+    private BulkheadExecutor cpuExecutor;
+    private ProcessingProperties properties;
+    private CacheManager cacheManager;
+    private MeterRegistry meterRegistry;
+    private ItemChangeFeed changeFeed;
+    private ItemAggregates aggregates;
     private ItemService itemService;
 
 
@@ -35,8 +95,18 @@ public class ItemServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        executor = new AsyncConfig().itemProcessingExecutor();
-        itemService = new ItemService(itemRepository, executor);
+        meterRegistry = new SimpleMeterRegistry();
+        dbExecutor = new AsyncConfig().dbExecutor(new ExecutorProperties(), meterRegistry);
+        cpuExecutor = new AsyncConfig().cpuExecutor(new ExecutorProperties(), meterRegistry);
+        properties = new ProcessingProperties();
+        cacheManager = new ConcurrentMapCacheManager(CacheConfig.ITEMS_CACHE);
+        changeFeed = new ItemChangeFeed(new ChangeFeedProperties(), meterRegistry);
+        aggregates = new ItemAggregates(jdbcTemplate, new AggregateProperties(), meterRegistry);
+        itemService = new ItemService(itemRepository,
+                new ItemProcessingEngine(itemRepository, watermarkRepository, partitionCoordinator, dbExecutor, cpuExecutor,
+                        properties, cacheManager, jdbcTemplate, List.of(), changeFeed, aggregates, meterRegistry), entityManager,
+                new ItemWriteBuffer(jdbcTemplate, cacheManager, new WriteBehindProperties(), meterRegistry),
+                new ItemSearchIndex(jdbcTemplate), changeFeed, aggregates);
         items = List.of(new Item(1L, "p1", "desc", "ADDED", "u@mail.com"),
                         new Item(2L, "p2", "desc1", "ADDED", "u2@mail.com"));
     }
@@ -46,12 +116,112 @@ public class ItemServiceTest {
         // given - the items from setUp()
 
         //when
-        when(itemRepository.findAll()).thenReturn(items);
-        List<Item> result = itemService.getAllItems();
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(100))).thenReturn(items);
+        List<Item> result = itemService.getAllItems(ItemFilter.NONE, null, 100);
 
         //then
         assertEquals(items, result);
-        verify(itemRepository, times(1)).findAll();
+        verify(itemRepository, times(1)).findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(100));
+        verify(itemRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetItemsAfterCursor() {
+        // given
+        List<Item> nextPage = List.of(items.get(1));
+
+        //when
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(1))).thenReturn(nextPage);
+        List<Item> result = itemService.getAllItems(ItemFilter.NONE, 1L, 1);
+
+        //then
+        assertEquals(nextPage, result);
+    }
+
+    @Test
+    void testGetItemFieldsAlwaysSelectsIdAndVersion() throws UnknownFieldException {
+        // given
+        List<Map<String, Object>> rows = List.of(Map.of("id", 1L, "version", 0L, "name", "p1"));
+
+        //when
+        when(itemRepository.findFields(any(), eq(List.of("id", "version", "name")), eq(10))).thenReturn(rows);
+        List<Map<String, Object>> result = itemService.getItemFields(ItemFilter.NONE, null, 10, List.of("name", "id"));
+
+        //then
+        assertEquals(rows, result);
+    }
+
+    @Test
+    void testGetItemFieldsUnknownField() {
+        assertThrows(UnknownFieldException.class,
+                () -> itemService.getItemFields(ItemFilter.NONE, null, 10, List.of("name", "password")));
+        verify(itemRepository, never()).findFields(any(), any(), anyInt());
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregates.close();
+    }
+
+    @Test
+    void testGetStatistics() {
+        // given
+        StatusCount added = mock(StatusCount.class);
+        when(added.getStatus()).thenReturn("ADDED");
+        when(added.getCount()).thenReturn(4L);
+        StatusCount processed = mock(StatusCount.class);
+        when(processed.getStatus()).thenReturn("PROCESSED");
+        when(processed.getCount()).thenReturn(2L);
+
+        //when
+        when(itemRepository.countByStatus()).thenReturn(List.of(added, processed));
+        ItemStatistics result = itemService.getStatistics();
+
+        //then
+        assertEquals(6, result.getTotal());
+        assertEquals(Map.of("ADDED", 4L, "PROCESSED", 2L), result.getByStatus());
+        verify(itemRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetStatisticsFromTheAggregatesOnceBuilt() throws Exception {
+        // given - an empty table, then one created and one updated item
+        aggregates.rebuild();
+        AtomicLong sequence = new AtomicLong();
+        when(itemRepository.save(any(Item.class))).thenAnswer(invocation -> {
+            Item saved = invocation.getArgument(0);
+            if (saved.getId() == null) {
+                saved.setId(sequence.incrementAndGet());
+            }
+            return saved;
+        });
+        when(itemRepository.findById(1L)).thenAnswer(invocation -> Optional.of(new Item(1L, "p1", "desc", "ADDED", "u@mail.com")));
+        itemService.createItem(new Item(null, "p1", "desc", "ADDED", "u@mail.com"));
+        itemService.createItem(new Item(null, "p2", "desc", "ADDED", "u2@other.com"));
+
+        //when
+        itemService.updateItem(1L, new Item(1L, "p1", "desc", "PROCESSED", "u@mail.com"), null);
+        ItemStatistics result = itemService.getStatistics();
+
+        //then
+        assertEquals(Map.of("ADDED", 1L, "PROCESSED", 1L), result.getByStatus());
+        assertEquals(Map.of("mail.com", 1L, "other.com", 1L), result.getTopEmailDomains());
+        verify(itemRepository, never()).countByStatus();
+    }
+
+    @Test
+    void testStreamAllItemsDetachesEveryItem() {
+        // given
+        List<Item> consumed = new ArrayList<>();
+
+        //when
+        when(itemRepository.streamAll()).thenReturn(items.stream());
+        itemService.streamAllItems(consumed::add);
+
+        //then
+        assertEquals(items, consumed);
+        verify(entityManager, times(1)).detach(items.get(0));
+        verify(entityManager, times(1)).detach(items.get(1));
     }
 
     @Test
@@ -70,7 +240,7 @@ public class ItemServiceTest {
     }
 
     @Test
-    void testUpdateExistingItem() throws IdNotExistentException {
+    void testUpdateExistingItem() throws IdNotExistentException, PreconditionFailedException {
         //given
         Long id = 1L;
         Item existing = items.get(0);
@@ -79,7 +249,7 @@ public class ItemServiceTest {
         //when
         when(itemRepository.findById(id)).thenReturn(Optional.of(existing));
         when(itemRepository.save(existing)).thenReturn(existing);
-        Item result = itemService.updateItem(id, newItem);
+        Item result = itemService.updateItem(id, newItem, null);
 
         //then
         assertEquals(id, result.getId());
@@ -101,22 +271,219 @@ public class ItemServiceTest {
         when(itemRepository.findById(id)).thenReturn(Optional.empty());
 
         //then
-        assertThrows(IdNotExistentException.class, () -> itemService.updateItem(id, newItem));
+        assertThrows(IdNotExistentException.class, () -> itemService.updateItem(id, newItem, null));
         verify(itemRepository, times(1)).findById(id);
         verify(itemRepository, never()).save(any());
     }
 
+    @Test
+    void testUpdateWithStaleVersion() {
+        //given
+        Long id = 1L;
+        Item existing = items.get(0);
+        existing.setVersion(3L);
+        Item newItem = new Item(null, "newP", "newD", "UPDATED", "newEmail@mail.com");
+
+        //when
+        when(itemRepository.findById(id)).thenReturn(Optional.of(existing));
+
+        //then
+        assertThrows(PreconditionFailedException.class, () -> itemService.updateItem(id, newItem, 2L));
+        verify(itemRepository, never()).save(any());
+    }
+
+    @Test
+    void testUpdateWithCurrentVersion() throws IdNotExistentException, PreconditionFailedException {
+        //given
+        Long id = 1L;
+        Item existing = items.get(0);
+        existing.setVersion(3L);
+        Item newItem = new Item(null, "newP", "newD", "UPDATED", "newEmail@mail.com");
+
+        //when
+        when(itemRepository.findById(id)).thenReturn(Optional.of(existing));
+        when(itemRepository.save(existing)).thenReturn(existing);
+        Item result = itemService.updateItem(id, newItem, 3L);
+
+        //then
+        assertEquals("newP", result.getName());
+        verify(itemRepository, times(1)).save(existing);
+    }
+
+    /**
+     * Service whose updates go through an enabled write-behind buffer. The flush interval is long enough
+     * that only the flushes called by the test happen.
+     */
+    private ItemWriteBuffer enableWriteBehind() {
+        WriteBehindProperties writeBehind = new WriteBehindProperties();
+        writeBehind.setEnabled(true);
+        writeBehind.setFlushInterval(Duration.ofHours(1));
+        ItemWriteBuffer buffer = new ItemWriteBuffer(jdbcTemplate, cacheManager, writeBehind, meterRegistry);
+        itemService = new ItemService(itemRepository, null, entityManager, buffer, new ItemSearchIndex(jdbcTemplate),
+                changeFeed, aggregates);
+        return buffer;
+    }
+
+    @Test
+    void testWriteBehindCoalescesUpdatesOfTheSameId() throws Exception {
+        // GIVEN an item with version 0 and a write-behind buffer
+        ItemWriteBuffer buffer = enableWriteBehind();
+        Item existing = items.get(0);
+        existing.setVersion(0L);
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        // WHEN it is updated 100 times and the buffer is flushed
+        Item last = null;
+        for (int i = 0; i < 100; i++) {
+            last = itemService.updateItem(1L, new Item(null, "name" + i, "desc", "UPDATED", "u@mail.com"), null);
+        }
+        int written = buffer.flush();
+
+        // THEN every update got its own version, but only the latest state was written, as one row with one statement
+        assertEquals(100L, last.getVersion());
+        assertEquals(1, written);
+        verify(itemRepository, times(1)).findById(1L);
+        verify(itemRepository, never()).save(any());
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("AND version = ?"), batchRows.capture());
+        assertEquals(1, batchRows.getValue().size());
+        assertEquals("name99", batchRows.getValue().get(0)[0]);
+        assertEquals(100L, batchRows.getValue().get(0)[5]);
+        assertEquals(0L, batchRows.getValue().get(0)[7]);
+        assertTrue(buffer.get(1L).isEmpty());
+    }
+
+    @Test
+    void testWriteBehindReadsSeeBufferedUpdates() throws Exception {
+        // GIVEN a buffered update that was not written yet
+        enableWriteBehind();
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(items.get(0)));
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(100))).thenReturn(items);
+        itemService.updateItem(1L, new Item(null, "buffered", "desc", "UPDATED", "u@mail.com"), null);
+
+        // WHEN the item and a page are read
+        Item read = itemService.findById(1L);
+        List<Item> page = itemService.getAllItems(ItemFilter.NONE, null, 100);
+
+        // THEN both return the buffered state
+        assertEquals("buffered", read.getName());
+        assertEquals("buffered", page.get(0).getName());
+        assertEquals("p2", page.get(1).getName());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void testWriteBehindSparsePageSeesBufferedUpdates() throws Exception {
+        // GIVEN a buffered update that was not written yet
+        enableWriteBehind();
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(items.get(0)));
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(10))).thenReturn(items);
+        itemService.updateItem(1L, new Item(null, "buffered", "desc", "UPDATED", "u@mail.com"), null);
+
+        // WHEN a page with only the names is read
+        List<Map<String, Object>> page = itemService.getItemFields(ItemFilter.NONE, null, 10, List.of("name"));
+
+        // THEN the columns are taken from the buffered item, not from the row
+        assertEquals(List.of("id", "version", "name"), List.copyOf(page.get(0).keySet()));
+        assertEquals("buffered", page.get(0).get("name"));
+        assertEquals("p2", page.get(1).get("name"));
+        verify(itemRepository, never()).findFields(any(), any(), anyInt());
+    }
+
+    @Test
+    void testWriteBehindStreamSeesBufferedUpdates() throws Exception {
+        // GIVEN a buffered update that was not written yet
+        enableWriteBehind();
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(items.get(0)));
+        itemService.updateItem(1L, new Item(null, "buffered", "desc", "UPDATED", "u@mail.com"), null);
+        List<Item> consumed = new ArrayList<>();
+
+        // WHEN every item is streamed
+        when(itemRepository.streamAll()).thenReturn(items.stream());
+        itemService.streamAllItems(consumed::add);
+
+        // THEN the first one is streamed in its buffered state
+        assertEquals(List.of("buffered", "p2"), consumed.stream().map(Item::getName).toList());
+    }
+
+    @Test
+    void testWriteBehindFilteredPageFollowsTheBufferedStatus() throws Exception {
+        // GIVEN two ADDED rows, the first one moved to UPDATED by a buffered update
+        enableWriteBehind();
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(items.get(0)));
+        itemService.updateItem(1L, new Item(null, "p1", "desc", "UPDATED", "u@mail.com"), null);
+        doReturn(items).doReturn(List.of()).when(itemRepository).findBy(ArgumentMatchers.<Specification<Item>>any(), any());
+
+        // WHEN both statuses are listed, while the database still has the old status
+        List<Item> added = itemService.getAllItems(new ItemFilter("ADDED", null, null), null, 10);
+        List<Item> updated = itemService.getAllItems(new ItemFilter("UPDATED", null, null), null, 10);
+
+        // THEN the item is listed under its new status only
+        assertEquals(List.of(2L), added.stream().map(Item::getId).toList());
+        assertEquals(List.of(1L), updated.stream().map(Item::getId).toList());
+    }
+
+    @Test
+    void testWriteBehindChecksTheBufferedVersion() throws Exception {
+        // GIVEN an item with version 3 that has one buffered update (version 4)
+        enableWriteBehind();
+        Item existing = items.get(0);
+        existing.setVersion(3L);
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(existing));
+        itemService.updateItem(1L, new Item(null, "first", "desc", "UPDATED", "u@mail.com"), 3L);
+
+        // THEN an If-Match with the version of the database is stale, the one of the buffered update is current
+        assertThrows(PreconditionFailedException.class,
+                () -> itemService.updateItem(1L, new Item(null, "second", "desc", "UPDATED", "u@mail.com"), 3L));
+        assertEquals(5L, itemService.updateItem(1L, new Item(null, "second", "desc", "UPDATED", "u@mail.com"), 4L).getVersion());
+    }
+
+    @Test
+    void testWriteBehindConflictWritesAnywayAndEvictsTheCache() throws Exception {
+        // GIVEN a buffered update whose row was changed in the database in the meantime
+        ItemWriteBuffer buffer = enableWriteBehind();
+        Item existing = items.get(0);
+        existing.setVersion(0L);
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(jdbcTemplate.batchUpdate(contains("AND version = ?"), anyList())).thenReturn(new int[]{0});
+        when(jdbcTemplate.batchUpdate(contains("version = version + 1"), anyList())).thenReturn(new int[]{1});
+        Item updated = itemService.updateItem(1L, new Item(null, "mine", "desc", "UPDATED", "u@mail.com"), null);
+        cacheManager.getCache(CacheConfig.ITEMS_CACHE).put(1L, updated);
+
+        // WHEN the buffer is flushed
+        int written = buffer.flush();
+
+        // THEN the values are written without the version check and the cached copy is dropped
+        assertEquals(1, written);
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("version = version + 1"), anyList());
+        assertNull(cacheManager.getCache(CacheConfig.ITEMS_CACHE).get(1L));
+        assertTrue(buffer.get(1L).isEmpty());
+    }
+
     @Test
     void testDeleteItem() {
         //given
         Long id = 1L;
-        doNothing().when(itemRepository).deleteById(id);
+        when(itemRepository.deleteItemById(id)).thenReturn(1);
 
         // when
         itemService.deleteById(id);
 
         // then
-        verify(itemRepository, times(1)).deleteById(id);
+        verify(itemRepository, times(1)).deleteItemById(id);
+        assertEquals(1, changeFeed.getLastSequence());
+    }
+
+    @Test
+    void testDeleteMissingItemPublishesNothing() {
+        //given
+        when(itemRepository.deleteItemById(42L)).thenReturn(0);
+
+        // when
+        itemService.deleteById(42L);
+
+        // then
+        assertEquals(0, changeFeed.getLastSequence());
     }
 
     @Test
@@ -125,17 +492,329 @@ public class ItemServiceTest {
         List<Long> ids = List.of(1L, 2L);
 
         //when
-        when(itemRepository.findAllIds()).thenReturn(ids);
-        when(itemRepository.findById(1L)).thenReturn(Optional.of(items.get(0)));
-        when(itemRepository.findById(2L)).thenReturn(Optional.of(items.get(1)));
-        when(itemRepository.save(any(Item.class))).thenAnswer(inv -> inv.getArgument(0));
-        List<Item> result = itemService.processItemsAsync().get();
+        when(itemRepository.count()).thenReturn(2L);
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(ids);
+        when(itemRepository.updateStatusByIds(ids, "PROCESSED")).thenReturn(2);
+        ProcessingJobStatus result = itemService.processItemsAsync(new ProcessingJob("job")).get();
+
+        // then
+        assertEquals(ProcessingJobState.COMPLETED, result.getState());
+        assertEquals(2, result.getTotal());
+        assertEquals(2, result.getProcessed());
+        assertEquals(0, result.getFailed());
+        assertEquals(1, result.getChunks());
+        verify(itemRepository, times(1)).findIdsAfter(anyLong(), any(Limit.class));
+        verify(itemRepository, times(1)).updateStatusByIds(ids, "PROCESSED");
+        verify(itemRepository, never()).findById(anyLong());
+        verify(itemRepository, never()).save(any(Item.class));
+    }
+
+    @Test
+    void testProcessItemsPublishesOnlyTheUpdatedIds() throws Exception {
+        // given - item 2 was deleted after the chunk was read
+        List<Long> ids = List.of(1L, 2L);
+        when(itemRepository.count()).thenReturn(2L);
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(ids);
+        when(itemRepository.updateStatusByIds(ids, "PROCESSED")).thenReturn(1);
+        when(itemRepository.findExistingIds(ids)).thenReturn(List.of(1L));
+        CompletableFuture<ItemChangeEvent> published = new CompletableFuture<>();
+
+        // when
+        itemService.processItemsAsync(new ProcessingJob("job")).get();
+        changeFeed.subscribe(0L, new ItemChangeFeed.Listener() {
+            @Override
+            public void onEvent(ItemChangeEvent event) {
+                published.complete(event);
+            }
+
+            @Override
+            public void onOverflow(long lastSequence) {
+            }
+        });
+
+        // then - one event, without the deleted id
+        assertEquals(1, changeFeed.getLastSequence());
+        assertArrayEquals(new long[]{1L}, published.get(5, TimeUnit.SECONDS).getIds());
+    }
+
+    @Test
+    void testProcessItemsEvictsCachedItems() throws ExecutionException, InterruptedException {
+        // given - both items are cached with their old status
+        List<Long> ids = List.of(1L, 2L);
+        Cache cache = cacheManager.getCache(CacheConfig.ITEMS_CACHE);
+        cache.put(1L, items.get(0));
+        cache.put(2L, items.get(1));
+
+        //when
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(ids);
+        when(itemRepository.updateStatusByIds(ids, "PROCESSED")).thenReturn(2);
+        itemService.processItemsAsync(new ProcessingJob("job")).get();
 
         // then
-        assertEquals(2, result.size());
-        assertTrue(result.stream().allMatch(i -> "PROCESSED".equals(i.getStatus())));
-        verify(itemRepository).findAllIds();
-        verify(itemRepository, times(2)).findById(anyLong());
-        verify(itemRepository, times(2)).save(any(Item.class));
+        assertNull(cache.get(1L));
+        assertNull(cache.get(2L));
+    }
+
+    @Test
+    void testProcessItemsEvictsItemsCachedDuringTheUpdate() throws ExecutionException, InterruptedException {
+        // given - a findById reads the old row while the chunk is being updated and caches it
+        List<Long> ids = List.of(1L, 2L);
+        Cache cache = cacheManager.getCache(CacheConfig.ITEMS_CACHE);
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(ids);
+        when(itemRepository.updateStatusByIds(ids, "PROCESSED")).thenAnswer(invocation -> {
+            cache.put(1L, items.get(0));
+            return 2;
+        });
+
+        //when
+        itemService.processItemsAsync(new ProcessingJob("job")).get();
+
+        // then - the copy cached before the commit does not outlive the update
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void testProcessItemsInKeysetChunks() throws ExecutionException, InterruptedException {
+        // given - chunks of 2 ids, the next page starts after the last id of the previous one
+        properties.setChunkSize(2);
+
+        //when
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(List.of(1L, 2L));
+        when(itemRepository.findIdsAfter(eq(2L), any(Limit.class))).thenReturn(List.of(3L, 4L));
+        when(itemRepository.findIdsAfter(eq(4L), any(Limit.class))).thenReturn(List.of(5L));
+        when(itemRepository.updateStatusByIds(anyCollection(), eq("PROCESSED")))
+                .thenAnswer(inv -> ((Collection<?>) inv.getArgument(0)).size());
+        ProcessingJobStatus result = itemService.processItemsAsync(new ProcessingJob("job")).get();
+
+        // then
+        assertEquals(5, result.getProcessed());
+        assertEquals(3, result.getChunks());
+        verify(itemRepository, times(3)).findIdsAfter(anyLong(), any(Limit.class));
+        verify(itemRepository, times(3)).updateStatusByIds(anyCollection(), eq("PROCESSED"));
+    }
+
+    @Test
+    void testProcessItemsFailingChunk() throws ExecutionException, InterruptedException {
+        // given - the first chunk fails, the second one is still processed
+        properties.setChunkSize(2);
+
+        //when
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(List.of(1L, 2L));
+        when(itemRepository.findIdsAfter(eq(2L), any(Limit.class))).thenReturn(List.of(3L));
+        when(itemRepository.updateStatusByIds(List.of(1L, 2L), "PROCESSED")).thenThrow(new IllegalStateException("db down"));
+        when(itemRepository.updateStatusByIds(List.of(3L), "PROCESSED")).thenReturn(1);
+        ProcessingJobStatus result = itemService.processItemsAsync(new ProcessingJob("job")).get();
+
+        //then
+        assertEquals(ProcessingJobState.COMPLETED, result.getState());
+        assertEquals(1, result.getProcessed());
+        assertEquals(2, result.getFailed());
+        assertEquals(1, meterRegistry.get("item.processing.items").tag("outcome", "processed").counter().count());
+        assertEquals(2, meterRegistry.get("item.processing.items").tag("outcome", "failed").counter().count());
+        assertEquals(1, meterRegistry.get("item.processing.chunk").tag("outcome", "failure").timer().count());
+        verify(watermarkRepository, never()).save(any());
+    }
+
+    @Test
+    void testProcessItemsChunkPastItsDeadlineFails() {
+        // given - the db bulkhead gives every chunk 100 ms, the first one hangs
+        properties.setChunkSize(2);
+        ExecutorProperties executorProperties = new ExecutorProperties();
+        executorProperties.getDb().setDeadline(Duration.ofMillis(100));
+        dbExecutor = new AsyncConfig().dbExecutor(executorProperties, meterRegistry);
+
+        //when
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(List.of(1L, 2L));
+        when(itemRepository.findIdsAfter(eq(2L), any(Limit.class))).thenReturn(List.of(3L));
+        when(itemRepository.updateStatusByIds(List.of(1L, 2L), "PROCESSED")).thenAnswer(inv -> {
+            Thread.sleep(10_000);
+            return 2;
+        });
+        when(itemRepository.updateStatusByIds(List.of(3L), "PROCESSED")).thenReturn(1);
+        ProcessingJob job = new ProcessingJob("job");
+        pipelineEngine().run(job);
+
+        //then - the run did not wait for the hanging chunk, which counts as failed
+        assertEquals(ProcessingJobState.COMPLETED, job.getState());
+        assertEquals(1, job.getProcessed());
+        assertEquals(2, job.getFailed());
+        assertEquals(1, meterRegistry.get("executor.deadline.exceeded").tag("name", AsyncConfig.DB_EXECUTOR)
+                .tag("phase", "running").counter().count());
+        verify(watermarkRepository, never()).save(any());
+    }
+
+    /**
+     * Engine with the given stages, so the chunks go through the staged pipeline.
+     */
+    private ItemProcessingEngine pipelineEngine(ItemProcessingStage... stages) {
+        return new ItemProcessingEngine(itemRepository, watermarkRepository, partitionCoordinator, dbExecutor, cpuExecutor,
+                properties, cacheManager, jdbcTemplate, List.of(stages), changeFeed, aggregates, meterRegistry);
+    }
+
+    private static Item loaded(long id) {
+        Item item = new Item(id, "p" + id, "desc", "ADDED", "u" + id + "@mail.com");
+        item.setVersion(7L);
+        return item;
+    }
+
+    @Test
+    void testPipelineRunsTheStagesAndPersistsWithTheVersion() {
+        // given - one chunk of 2 items and a stage that changes the names
+        properties.setChunkSize(2);
+        ItemProcessingStage upperCase = items -> {
+            items.forEach(item -> item.setName(item.getName().toUpperCase()));
+            return items;
+        };
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(List.of(1L));
+        when(itemRepository.findAllById(List.of(1L))).thenReturn(List.of(loaded(1L)));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        // when
+        ProcessingJob job = new ProcessingJob("job");
+        pipelineEngine(upperCase).run(job);
+
+        // then - the transformed item is written as PROCESSED, only if it still has the loaded version
+        ProcessingJobStatus result = job.toStatus();
+        assertEquals(ProcessingJobState.COMPLETED, result.getState());
+        assertEquals(1, result.getProcessed());
+        verify(jdbcTemplate).batchUpdate(contains("WHERE id = ? AND version = ?"), batchRows.capture());
+        assertArrayEquals(new Object[]{"P1", "desc", "PROCESSED", "u1@mail.com", 1L, 7L}, batchRows.getValue().get(0));
+        verify(itemRepository, never()).updateStatusByIds(anyCollection(), anyString());
+        assertEquals(1, meterRegistry.get("item.processing.stage").tag("stage", "persist").timer().count());
+    }
+
+    @Test
+    void testPipelineCountsItemsLeftOutByAStageAsProcessed() {
+        // given - one chunk of 3 ids, one deleted before the load and one left out by the stage
+        properties.setChunkSize(3);
+        ItemProcessingStage onlyOdd = items -> items.stream().filter(item -> item.getId() % 2 == 1).toList();
+        when(itemRepository.count()).thenReturn(3L);
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(List.of(1L, 2L, 3L));
+        when(itemRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(loaded(1L), loaded(2L)));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        // when
+        ProcessingJob job = new ProcessingJob("job");
+        pipelineEngine(onlyOdd).run(job);
+
+        // then - only item 1 is written, but the whole chunk is accounted for
+        ProcessingJobStatus result = job.toStatus();
+        assertEquals(ProcessingJobState.COMPLETED, result.getState());
+        assertEquals(3, result.getTotal());
+        assertEquals(3, result.getProcessed());
+        assertEquals(0, result.getFailed());
+        verify(jdbcTemplate).batchUpdate(contains("WHERE id = ? AND version = ?"), batchRows.capture());
+        assertEquals(1, batchRows.getValue().size());
+        assertEquals(1L, batchRows.getValue().get(0)[4]);
+    }
+
+    @Test
+    void testPipelineFailingStageOnlyFailsItsBatch() {
+        // given - 2 chunks, the stage fails on the one with item 3
+        properties.setChunkSize(2);
+        ItemProcessingStage failing = new ItemProcessingStage() {
+            @Override
+            public List<Item> apply(List<Item> items) {
+                if (items.stream().anyMatch(item -> item.getId() == 3L)) {
+                    throw new IllegalStateException("cannot enrich");
+                }
+                return items;
+            }
+
+            @Override
+            public int getParallelism() {
+                return 2;
+            }
+        };
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(List.of(1L, 2L));
+        when(itemRepository.findIdsAfter(eq(2L), any(Limit.class))).thenReturn(List.of(3L));
+        when(itemRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(loaded(1L), loaded(2L)));
+        when(itemRepository.findAllById(List.of(3L))).thenReturn(List.of(loaded(3L)));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+
+        // when
+        ProcessingJob job = new ProcessingJob("job");
+        pipelineEngine(failing).run(job);
+
+        // then
+        assertEquals(2, job.getProcessed());
+        assertEquals(1, job.getFailed());
+        verify(watermarkRepository, never()).save(any());
+    }
+
+    @Test
+    void testPipelineDoesNotOverwriteItemsChangedMeanwhile() {
+        // given - the second item was updated after it was loaded
+        properties.setChunkSize(2);
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(List.of(1L, 2L));
+        when(itemRepository.findIdsAfter(eq(2L), any(Limit.class))).thenReturn(List.of());
+        when(itemRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(loaded(1L), loaded(2L)));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        // when
+        ProcessingJob job = new ProcessingJob("job");
+        pipelineEngine(items -> items).run(job);
+
+        // then
+        assertEquals(1, job.getProcessed());
+        assertEquals(1, job.getFailed());
+    }
+
+    @Test
+    void testIncrementalRunReadsOnlyChangedItems() throws ExecutionException, InterruptedException {
+        // given - the last successful run left a watermark
+        Instant since = Instant.parse("2025-01-01T00:00:00Z");
+        ItemChange change = mock(ItemChange.class);
+        when(change.getId()).thenReturn(2L);
+        when(change.getLastModified()).thenReturn(since.plusSeconds(10));
+
+        //when
+        when(watermarkRepository.findById(ItemProcessingEngine.WATERMARK_NAME))
+                .thenReturn(Optional.of(new ProcessingWatermark(ItemProcessingEngine.WATERMARK_NAME, since)));
+        when(itemRepository.countByLastModifiedGreaterThanEqual(since)).thenReturn(1L);
+        when(itemRepository.findChangesAfter(eq(since), eq(Long.MIN_VALUE), any(Limit.class))).thenReturn(List.of(change));
+        when(itemRepository.updateStatusByIds(List.of(2L), "PROCESSED")).thenReturn(1);
+        ProcessingJobStatus result = itemService.processItemsAsync(new ProcessingJob("job", ProcessingMode.INCREMENTAL)).get();
+
+        // then
+        assertEquals(ProcessingMode.INCREMENTAL, result.getMode());
+        assertEquals(since, result.getSince());
+        assertEquals(1, result.getTotal());
+        assertEquals(1, result.getProcessed());
+        verify(itemRepository, never()).findIdsAfter(anyLong(), any(Limit.class));
+        verify(itemRepository, never()).count();
+        ArgumentCaptor<ProcessingWatermark> saved = ArgumentCaptor.forClass(ProcessingWatermark.class);
+        verify(watermarkRepository, times(1)).save(saved.capture());
+        assertTrue(saved.getValue().getWatermark().isAfter(since));
+    }
+
+    @Test
+    void testProcessItemsFailingRead() {
+        // given
+        ProcessingJob job = new ProcessingJob("job");
+
+        //when
+        when(itemRepository.findIdsAfter(eq(Long.MIN_VALUE), any(Limit.class))).thenThrow(new IllegalStateException("db down"));
+
+        //then
+        assertThrows(IllegalStateException.class, () -> itemService.processItemsAsync(job));
+        assertEquals(ProcessingJobState.FAILED, job.getState());
+        assertEquals("db down", job.toStatus().getError());
+    }
+
+    @Test
+    void testCancelledJobStartsNoChunk() throws ExecutionException, InterruptedException {
+        // given
+        ProcessingJob job = new ProcessingJob("job");
+        job.cancel();
+
+        //when
+        ProcessingJobStatus result = itemService.processItemsAsync(job).get();
+
+        //then
+        assertEquals(ProcessingJobState.CANCELLED, result.getState());
+        assertEquals(0, result.getProcessed());
+        verify(itemRepository, never()).updateStatusByIds(anyCollection(), anyString());
+        verify(watermarkRepository, never()).save(any());
     }
 }
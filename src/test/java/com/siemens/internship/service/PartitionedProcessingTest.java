@@ -0,0 +1,181 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.InternshipApplication;
+import com.siemens.internship.config.exception.IdNotExistentException;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.PartitionState;
+import com.siemens.internship.model.ProcessingJobStatus;
+import com.siemens.internship.model.ProcessingMode;
+import com.siemens.internship.model.ProcessingPartition;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.ProcessingPartitionRepository;
+import com.siemens.internship.repository.ProcessingWatermarkRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * INTEGRATION TESTS for the partitioned processing: two application contexts play two instances of the service
+ * sharing one file-based H2 database, and coordinate only through the processing_partition table.
+ */
+
+public class PartitionedProcessingTest {
+    private static final int ITEMS = 2000;
+
+    @TempDir
+    static Path databaseDir;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        String url = "jdbc:h2:file:" + databaseDir.resolve("items").toAbsolutePath() + ";MODE=PostgreSQL";
+        nodeA = startNode("node-a", url);
+        nodeB = startNode("node-b", url);
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, String url) {
+        return new SpringApplicationBuilder(InternshipApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.main.banner-mode=off",
+                        "--item.processing.partitioned=true",
+                        "--item.processing.partitions=8",
+                        "--item.processing.chunk-size=50",
+                        "--item.processing.partition-poll-interval=50ms",
+                        "--item.processing.node-id=" + nodeId);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        nodeA.getBean(ProcessingPartitionRepository.class).deleteAll();
+        nodeA.getBean(ProcessingWatermarkRepository.class).deleteAll();
+        ItemRepository items = nodeA.getBean(ItemRepository.class);
+        items.deleteAll();
+        items.saveAll(IntStream.range(0, ITEMS)
+                .mapToObj(i -> new Item(null, "item-" + i, "d", "ADDED", "u" + i + "@mail.com"))
+                .toList());
+    }
+
+    @Test
+    void testNodesShareTheWorkWithoutOverlap() throws Exception {
+        // given
+        ProcessingJobService jobsA = nodeA.getBean(ProcessingJobService.class);
+        ProcessingJobService jobsB = nodeB.getBean(ProcessingJobService.class);
+
+        // when - both instances are asked to process at the same time
+        ProcessingJobStatus startedA = jobsA.start(ProcessingMode.FULL);
+        ProcessingJobStatus startedB = jobsB.start(ProcessingMode.FULL);
+        ProcessingJobStatus resultA = awaitJob(jobsA, startedA.getJobId());
+        ProcessingJobStatus resultB = awaitJob(jobsB, startedB.getJobId());
+
+        // then - every item is processed exactly once, by one of them
+        assertEquals(ITEMS, resultA.getProcessed() + resultB.getProcessed());
+        assertEquals(0, resultA.getFailed() + resultB.getFailed());
+        assertEquals(ITEMS, nodeA.getBean(ItemRepository.class).findAll().stream()
+                .filter(item -> item.getStatus().equals("PROCESSED"))
+                .count());
+
+        List<ProcessingPartition> partitions = nodeA.getBean(ProcessingPartitionRepository.class).findAll();
+        assertEquals(8, partitions.size());
+        assertTrue(partitions.stream().allMatch(partition -> partition.getState() == PartitionState.DONE));
+        assertEquals(ITEMS, partitions.stream().mapToLong(ProcessingPartition::getProcessed).sum());
+        assertTrue(nodeA.getBean(ProcessingWatermarkRepository.class).existsById(ItemProcessingEngine.WATERMARK_NAME));
+    }
+
+    @Test
+    void testExpiredLeaseIsTakenOver() throws Exception {
+        // given - a generation whose only range is held by an instance that died
+        ItemRepository items = nodeA.getBean(ItemRepository.class);
+        ProcessingPartition abandoned = new ProcessingPartition(1, items.findMinId(), items.findMaxId() + 1,
+                null, Instant.now());
+        abandoned.setState(PartitionState.CLAIMED);
+        abandoned.setOwner("dead-node");
+        abandoned.setLeaseUntil(Instant.now().minusSeconds(60));
+        nodeA.getBean(ProcessingPartitionRepository.class).save(abandoned);
+
+        // when
+        ProcessingJobService jobsB = nodeB.getBean(ProcessingJobService.class);
+        ProcessingJobStatus result = awaitJob(jobsB, jobsB.start(ProcessingMode.FULL).getJobId());
+
+        // then - node B claimed the range again and processed it
+        assertEquals(ITEMS, result.getProcessed());
+        ProcessingPartition partition = nodeA.getBean(ProcessingPartitionRepository.class).findAll().get(0);
+        assertEquals(PartitionState.DONE, partition.getState());
+        assertEquals("node-b", partition.getOwner());
+    }
+
+    @Test
+    void testLiveLeaseIsNotStolen() {
+        // given - a range held by an instance that is still renewing its lease
+        ItemRepository items = nodeA.getBean(ItemRepository.class);
+        ProcessingPartition held = new ProcessingPartition(1, items.findMinId(), items.findMaxId() + 1,
+                null, Instant.now());
+        held.setState(PartitionState.CLAIMED);
+        held.setOwner("node-c");
+        held.setLeaseUntil(Instant.now().plusSeconds(60));
+        nodeA.getBean(ProcessingPartitionRepository.class).save(held);
+
+        // when
+        List<Boolean> claims = new ArrayList<>();
+        claims.add(nodeA.getBean(PartitionCoordinator.class).claimNext(1).isPresent());
+        claims.add(nodeB.getBean(PartitionCoordinator.class).claimNext(1).isPresent());
+
+        // then
+        assertEquals(List.of(false, false), claims);
+    }
+
+    @Test
+    void testItemsProcessedByAnotherNodeAreEvictedFromTheCache() throws Exception {
+        // given - node A has an item cached with its old status
+        ItemService itemsA = nodeA.getBean(ItemService.class);
+        Long id = nodeA.getBean(ItemRepository.class).findMinId();
+        assertEquals("ADDED", itemsA.findById(id).getStatus());
+
+        // when - node B processes the whole generation on its own
+        ProcessingJobService jobsB = nodeB.getBean(ProcessingJobService.class);
+        ProcessingJobStatus result = awaitJob(jobsB, jobsB.start(ProcessingMode.FULL).getJobId());
+        assertEquals(ITEMS, result.getProcessed());
+
+        // then - node A sees the completed ranges and reads the item again
+        String status = itemsA.findById(id).getStatus();
+        for (int attempt = 0; attempt < 100 && !status.equals("PROCESSED"); attempt++) {
+            Thread.sleep(50);
+            status = itemsA.findById(id).getStatus();
+        }
+        assertEquals("PROCESSED", status);
+    }
+
+    private static ProcessingJobStatus awaitJob(ProcessingJobService jobs, String jobId)
+            throws IdNotExistentException, InterruptedException {
+        ProcessingJobStatus status = jobs.getStatus(jobId);
+        for (int attempt = 0; attempt < 200 && !status.getState().isFinished(); attempt++) {
+            Thread.sleep(50);
+            status = jobs.getStatus(jobId);
+        }
+
+        return status;
+    }
+}